@@ -12,7 +12,9 @@ public class  Entity {
 
 
     public BufferedImage up1,up2,down1,down2,left1,left2,right1,right2;
-    public String direction;
+    //direction is an int so the update and draw switches dont compare strings every frame
+    public static final int UP = 0, DOWN = 1, LEFT = 2, RIGHT = 3;
+    public int direction;
 
 
     public int spriteCounter = 0;
@@ -23,4 +25,20 @@ public class  Entity {
     public boolean collisionOn = false;
 
     //again coordinates and movement speed defined
+
+    //area of interest bookkeeping, see main.AreaOfInterest
+    public int aoiCell = -1;
+    public Entity aoiPrev, aoiNext;
+    public int lastUpdateTick;
+
+    public void update() {
+    }
+
+    //a cheaper update that stands in for several ticks at once, used for entities far from the camera
+    //by default it just runs the normal update that many times
+    public void updateCoarse(int ticks) {
+        for (int i = 0; i < ticks; i++) {
+            update();
+        }
+    }
 }
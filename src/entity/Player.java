@@ -42,25 +42,42 @@ public class Player extends Entity {
         worldX = gp.tileSize * 23;
         worldY = gp.tileSize * 21;
         speed = 4;
-        direction = "down";
+        direction = DOWN;
     }
 
-    public void getPlayerImage() {
-        try{
-            up1 = ImageIO.read(getClass().getClassLoader().getResourceAsStream("player/boy_up_1.png"));
-            up2 = ImageIO.read(getClass().getClassLoader().getResourceAsStream("player/boy_up_2.png"));
-            down1 = ImageIO.read(getClass().getClassLoader().getResourceAsStream("player/boy_down_1.png"));
-            down2 = ImageIO.read(getClass().getClassLoader().getResourceAsStream("player/boy_down_2.png"));
-            left1 = ImageIO.read(getClass().getClassLoader().getResourceAsStream("player/boy_left_1.png"));
-            left2 = ImageIO.read(getClass().getClassLoader().getResourceAsStream("player/boy_left_2.png"));
-            right1 = ImageIO.read(getClass().getClassLoader().getResourceAsStream("player/boy_right_1.png"));
-            right2 = ImageIO.read(getClass().getClassLoader().getResourceAsStream("player/boy_right_2.png"));
-
+    //the sprites are the same for every player, so we load them once and share them
+    //the server creates a player for every client so this matters there
+    static BufferedImage[] sharedImages;
 
+    public void getPlayerImage() {
+        synchronized (Player.class) {
+            if (sharedImages == null) {
+                try{
+                    sharedImages = new BufferedImage[]{
+                            ImageIO.read(getClass().getClassLoader().getResourceAsStream("player/boy_up_1.png")),
+                            ImageIO.read(getClass().getClassLoader().getResourceAsStream("player/boy_up_2.png")),
+                            ImageIO.read(getClass().getClassLoader().getResourceAsStream("player/boy_down_1.png")),
+                            ImageIO.read(getClass().getClassLoader().getResourceAsStream("player/boy_down_2.png")),
+                            ImageIO.read(getClass().getClassLoader().getResourceAsStream("player/boy_left_1.png")),
+                            ImageIO.read(getClass().getClassLoader().getResourceAsStream("player/boy_left_2.png")),
+                            ImageIO.read(getClass().getClassLoader().getResourceAsStream("player/boy_right_1.png")),
+                            ImageIO.read(getClass().getClassLoader().getResourceAsStream("player/boy_right_2.png"))
+                    };
+                }
+                catch(IOException e) {
+                    e.printStackTrace();
+                    return;
+                }
+            }
         }
-        catch(IOException e) {
-            e.printStackTrace();
-        }
+        up1 = sharedImages[0];
+        up2 = sharedImages[1];
+        down1 = sharedImages[2];
+        down2 = sharedImages[3];
+        left1 = sharedImages[4];
+        left2 = sharedImages[5];
+        right1 = sharedImages[6];
+        right2 = sharedImages[7];
     }
 
     public void update() {
@@ -69,13 +86,13 @@ public class Player extends Entity {
 
 
             if (keyH.upPressed == true) {
-                direction = "up";
+                direction = UP;
             } else if (keyH.downPressed == true) {
-                direction = "down";
+                direction = DOWN;
             } else if (keyH.leftPressed == true) {
-                direction = "left";
+                direction = LEFT;
             } else if (keyH.rightPressed == true) {
-                direction = "right";
+                direction = RIGHT;
             }
 
             //since this update method is called every frame
@@ -95,16 +112,16 @@ public class Player extends Entity {
             //if collision is false player can move
             if (collisionOn == false) {
                 switch (direction) {
-                    case "up":
+                    case UP:
                         worldY -= speed;
                         break;
-                    case "down":
+                    case DOWN:
                         worldY += speed;
                         break;
-                    case "left":
+                    case LEFT:
                         worldX -= speed;
                         break;
-                    case "right":
+                    case RIGHT:
                         worldX += speed;
                         break;
                 }
@@ -122,6 +139,15 @@ public class Player extends Entity {
         }
     }
 
+    //one collision check that covers several ticks of walking
+    //the step is capped at half a tile so it can never jump over a wall
+    public void updateCoarse(int ticks) {
+        int normalSpeed = speed;
+        speed = Math.min(speed * ticks, gp.tileSize / 2);
+        update();
+        speed = normalSpeed;
+    }
+
     public void pickUpObject(int i){
         if ( i != 999) {
             gp.obj[i] = null;
@@ -136,7 +162,7 @@ public class Player extends Entity {
         BufferedImage image = null;
 
         switch (direction) {
-            case "up":
+            case UP:
                 if (spriteNum == 1){
                     image = up1;
                 }
@@ -144,7 +170,7 @@ public class Player extends Entity {
                     image = up2;
                 }
                 break;
-            case "down" :
+            case DOWN:
                 if (spriteNum == 1){
                     image = down1;
                 }
@@ -152,7 +178,7 @@ public class Player extends Entity {
                     image = down2;
                 }
                 break;
-            case "left" :
+            case LEFT:
                 if (spriteNum == 1){
                     image = left1;
                 }
@@ -160,7 +186,7 @@ public class Player extends Entity {
                     image = left2;
                 }
                 break;
-            case "right":
+            case RIGHT:
                 if (spriteNum == 1){
                     image = right1;
                 }
@@ -170,7 +196,7 @@ public class Player extends Entity {
                 break;
         }
 
-        g2.drawImage(image,screenX,screenY,gp.tileSize,gp.tileSize,null);
+        g2.drawImage(image,gp.toScreen(screenX),gp.toScreen(screenY),gp.drawTileSize,gp.drawTileSize,null);
         //this null is called image observer
     }
 
@@ -0,0 +1,65 @@
+package main;
+
+import java.lang.management.ManagementFactory;
+
+//counts how many bytes the current thread allocates between begin() and end()
+//uses the per thread allocation counter of the jvm, so it only sees what this thread did
+//the game wraps update() and drawing in one of these each, a steady state tick should be 0 bytes
+public class AllocationTracker {
+    static final com.sun.management.ThreadMXBean threads =
+            (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+    public static final boolean supported = threads.isThreadAllocatedMemorySupported();
+
+    static {
+        if (supported && !threads.isThreadAllocatedMemoryEnabled()) {
+            threads.setThreadAllocatedMemoryEnabled(true);
+        }
+    }
+
+    long start;
+    public long last;
+    public long total;
+    public long max;
+    public long samples;
+    public long allocatingSamples; //how many of them allocated anything at all
+
+    public void begin() {
+        if (supported) {
+            start = threads.getCurrentThreadAllocatedBytes();
+        }
+    }
+
+    public void end() {
+        if (!supported) {
+            return;
+        }
+        last = threads.getCurrentThreadAllocatedBytes() - start;
+        total += last;
+        if (last > max) {
+            max = last;
+        }
+        samples++;
+        if (last > 0) {
+            allocatingSamples++;
+        }
+    }
+
+    public long average() {
+        return samples == 0 ? 0 : total / samples;
+    }
+
+    public void reset() {
+        last = 0;
+        total = 0;
+        max = 0;
+        samples = 0;
+        allocatingSamples = 0;
+    }
+
+    public String toString() {
+        if (!supported) {
+            return "n/a";
+        }
+        return average() + "B avg " + max + "B max " + allocatingSamples + "/" + samples + " allocating";
+    }
+}
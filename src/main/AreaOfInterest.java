@@ -0,0 +1,170 @@
+package main;
+
+import entity.Entity;
+
+import java.util.ArrayList;
+
+//decides how often each entity gets updated depending on how far it is from the camera
+//near (on screen and a bit around it)  -> update() every tick
+//mid                                   -> updateCoarse() every few ticks
+//far                                   -> frozen, not even looked at
+//entities are kept in a grid of cells so a tick only visits the cells around the camera,
+//which means the cost depends on how many entities are near you and not on how many are in the world
+public class AreaOfInterest {
+    Gamepanel gp;
+
+    public static final int CELL_SIZE = 8; //tiles
+    public int nearCells = 2; //the screen is 16x12 tiles so 2 cells each way covers it
+    public int midCells = 4;
+    public int midInterval = 4; //ticks between coarse updates
+    public int maxCatchUp = 120; //a frozen entity catches up at most 2 seconds when it wakes up
+
+    int cellCols, cellRows;
+    Entity[] cellHead = new Entity[0];
+    final ArrayList<Entity> entities = new ArrayList<>();
+
+    public int tick = 0;
+    //what the last tick did
+    public int nearUpdates, midUpdates;
+
+    public AreaOfInterest(Gamepanel gp) {
+        this.gp = gp;
+    }
+
+    public void add(Entity e) {
+        checkGrid();
+        entities.add(e);
+        e.lastUpdateTick = tick;
+        insert(e, cellOf(e));
+    }
+
+    public void remove(Entity e) {
+        entities.remove(e);
+        unlink(e);
+    }
+
+    public int size() {
+        return entities.size();
+    }
+
+    //cameraX/Y in world pixels, usually the player
+    public void update(int cameraX, int cameraY) {
+        checkGrid();
+        tick++;
+        nearUpdates = 0;
+        midUpdates = 0;
+
+        int camCol = cameraX / gp.tileSize / CELL_SIZE;
+        int camRow = cameraY / gp.tileSize / CELL_SIZE;
+        int fromCol = Math.max(0, camCol - midCells);
+        int toCol = Math.min(cellCols - 1, camCol + midCells);
+        int fromRow = Math.max(0, camRow - midCells);
+        int toRow = Math.min(cellRows - 1, camRow + midCells);
+
+        for (int col = fromCol; col <= toCol; col++) {
+            for (int row = fromRow; row <= toRow; row++) {
+                boolean near = Math.abs(col - camCol) <= nearCells && Math.abs(row - camRow) <= nearCells;
+                Entity e = cellHead[col * cellRows + row];
+                while (e != null) {
+                    //grab next first, updating can move e into another cell
+                    Entity next = e.aoiNext;
+                    if (e.lastUpdateTick != tick) {
+                        if (near) {
+                            updateNear(e);
+                        } else {
+                            updateMid(e);
+                        }
+                    }
+                    e = next;
+                }
+            }
+        }
+    }
+
+    void updateNear(Entity e) {
+        //coming back from mid or frozen, catch up on what it missed first
+        catchUp(e, tick - 1 - e.lastUpdateTick);
+        e.update();
+        e.lastUpdateTick = tick;
+        nearUpdates++;
+        moved(e);
+    }
+
+    void updateMid(Entity e) {
+        int missed = tick - e.lastUpdateTick;
+        if (missed < midInterval) {
+            return;
+        }
+        catchUp(e, missed);
+        e.lastUpdateTick = tick;
+        midUpdates++;
+        moved(e);
+    }
+
+    void catchUp(Entity e, int ticks) {
+        ticks = Math.min(ticks, maxCatchUp);
+        while (ticks > 0) {
+            int step = Math.min(ticks, midInterval);
+            e.updateCoarse(step);
+            ticks -= step;
+        }
+    }
+
+    int cellOf(Entity e) {
+        int col = Math.max(0, Math.min(cellCols - 1, e.worldX / gp.tileSize / CELL_SIZE));
+        int row = Math.max(0, Math.min(cellRows - 1, e.worldY / gp.tileSize / CELL_SIZE));
+        return col * cellRows + row;
+    }
+
+    void moved(Entity e) {
+        int cell = cellOf(e);
+        if (cell != e.aoiCell) {
+            unlink(e);
+            insert(e, cell);
+        }
+    }
+
+    //each cell is a linked list through the entities themselves, so moving between cells never allocates
+    void insert(Entity e, int cell) {
+        e.aoiCell = cell;
+        e.aoiPrev = null;
+        e.aoiNext = cellHead[cell];
+        if (e.aoiNext != null) {
+            e.aoiNext.aoiPrev = e;
+        }
+        cellHead[cell] = e;
+    }
+
+    void unlink(Entity e) {
+        if (e.aoiCell < 0) {
+            return;
+        }
+        if (e.aoiPrev != null) {
+            e.aoiPrev.aoiNext = e.aoiNext;
+        } else {
+            cellHead[e.aoiCell] = e.aoiNext;
+        }
+        if (e.aoiNext != null) {
+            e.aoiNext.aoiPrev = e.aoiPrev;
+        }
+        e.aoiPrev = null;
+        e.aoiNext = null;
+        e.aoiCell = -1;
+    }
+
+    //the world can change size (generated worlds), rebuild the grid if it did
+    void checkGrid() {
+        int cols = (gp.maxWorldCol + CELL_SIZE - 1) / CELL_SIZE;
+        int rows = (gp.maxWorldRow + CELL_SIZE - 1) / CELL_SIZE;
+        if (cols == cellCols && rows == cellRows) {
+            return;
+        }
+        cellCols = cols;
+        cellRows = rows;
+        cellHead = new Entity[cols * rows];
+        for (Entity e : entities) {
+            e.aoiCell = -1;
+            insert(e, cellOf(e));
+        }
+    }
+}
@@ -3,6 +3,7 @@ package main;
 import object.OBJ_Chest;
 import object.OBJ_Door;
 import object.OBJ_Key;
+import tile.WorldGenerator;
 
 public class AssetSetter {
     Gamepanel gp;
@@ -35,4 +36,19 @@ public class AssetSetter {
         gp.obj[4].worldX = 68 * gp.tileSize;
         gp.obj[4].worldY = 68 * gp.tileSize;
     }
+
+    //objects for a generated world, the generator already made sure they can be reached
+    public void setObject(WorldGenerator gen) {
+        gp.obj[0] = new OBJ_Chest();
+        gp.obj[0].worldX = gen.chestCol * gp.tileSize;
+        gp.obj[0].worldY = gen.chestRow * gp.tileSize;
+
+        gp.obj[1] = new OBJ_Key();
+        gp.obj[1].worldX = gen.keyCol * gp.tileSize;
+        gp.obj[1].worldY = gen.keyRow * gp.tileSize;
+
+        gp.obj[2] = new OBJ_Door();
+        gp.obj[2].worldX = gen.doorCol * gp.tileSize;
+        gp.obj[2].worldY = gen.doorRow * gp.tileSize;
+    }
 }
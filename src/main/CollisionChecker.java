@@ -1,6 +1,7 @@
 package main;
 
 import entity.Entity;
+import object.SuperObject;
 
 public class CollisionChecker {
 
@@ -17,43 +18,34 @@ public class CollisionChecker {
         int entityTopWorldY = entity.worldY + entity.solidarea.y;
         int entityBottomWorldY = entity.worldY + entity.solidarea.y + entity.solidarea.height;
 
-        int entityLeftCol = entityLeftWorldX/gp.tileSize;
-        int entityRightCol = entityRightWorldX/gp.tileSize;
-        int entityTopRow = entityTopWorldY/gp.tileSize;
-        int entityBottomRow = entityBottomWorldY/gp.tileSize;
-
-        int tileNum1, tileNum2;
+        //floorDiv so a few pixels left of or above the map is tile -1 and not tile 0
+        int entityLeftCol = Math.floorDiv(entityLeftWorldX, gp.tileSize);
+        int entityRightCol = Math.floorDiv(entityRightWorldX, gp.tileSize);
+        int entityTopRow = Math.floorDiv(entityTopWorldY, gp.tileSize);
+        int entityBottomRow = Math.floorDiv(entityBottomWorldY, gp.tileSize);
 
         switch(entity.direction) {
-            case "up":
-                entityTopRow = (entityTopWorldY - entity.speed)/gp.tileSize;
-                tileNum1 = gp.tileM.mapTileNum[entityLeftCol][entityTopRow];
-                tileNum2 = gp.tileM.mapTileNum[entityRightCol][entityTopRow];
-                if(gp.tileM.tile[tileNum1].collision == true || gp.tileM.tile[tileNum2].collision == true) {
+            case Entity.UP:
+                entityTopRow = Math.floorDiv(entityTopWorldY - entity.speed, gp.tileSize);
+                if(solidAt(entityLeftCol, entityTopRow) || solidAt(entityRightCol, entityTopRow)) {
                     entity.collisionOn = true;
                 }
                 break;
-            case "down":
-                entityBottomRow = (entityBottomWorldY + entity.speed)/gp.tileSize;
-                tileNum1 = gp.tileM.mapTileNum[entityLeftCol][entityBottomRow];
-                tileNum2 = gp.tileM.mapTileNum[entityRightCol][entityBottomRow];
-                if(gp.tileM.tile[tileNum1].collision == true || gp.tileM.tile[tileNum2].collision == true) {
+            case Entity.DOWN:
+                entityBottomRow = Math.floorDiv(entityBottomWorldY + entity.speed, gp.tileSize);
+                if(solidAt(entityLeftCol, entityBottomRow) || solidAt(entityRightCol, entityBottomRow)) {
                     entity.collisionOn = true;
                 }
                 break;
-            case "left":
-                entityLeftCol = (entityLeftWorldX - entity.speed)/gp.tileSize;
-                tileNum1 = gp.tileM.mapTileNum[entityLeftCol][entityTopRow];
-                tileNum2 = gp.tileM.mapTileNum[entityLeftCol][entityBottomRow];
-                if(gp.tileM.tile[tileNum1].collision == true || gp.tileM.tile[tileNum2].collision == true) {
+            case Entity.LEFT:
+                entityLeftCol = Math.floorDiv(entityLeftWorldX - entity.speed, gp.tileSize);
+                if(solidAt(entityLeftCol, entityTopRow) || solidAt(entityLeftCol, entityBottomRow)) {
                     entity.collisionOn = true;
                 }
                  break;
-            case "right":
-                entityRightCol = (entityRightWorldX + entity.speed)/gp.tileSize;
-                tileNum1 = gp.tileM.mapTileNum[entityRightCol][entityTopRow];
-                tileNum2 = gp.tileM.mapTileNum[entityRightCol][entityBottomRow];
-                if(gp.tileM.tile[tileNum1].collision == true || gp.tileM.tile[tileNum2].collision == true) {
+            case Entity.RIGHT:
+                entityRightCol = Math.floorDiv(entityRightWorldX + entity.speed, gp.tileSize);
+                if(solidAt(entityRightCol, entityTopRow) || solidAt(entityRightCol, entityBottomRow)) {
                     entity.collisionOn = true;
                 }
                 break;
@@ -61,74 +53,61 @@ public class CollisionChecker {
         }
     }
 
+    //anything outside the map counts as a wall
+    //map04 has an opening in the bottom edge and walking through it used to crash the game
+    boolean solidAt(int col, int row) {
+        if (col < 0 || row < 0 || col >= gp.maxWorldCol || row >= gp.maxWorldRow) {
+            return true;
+        }
+        return gp.tileM.tile[gp.tileM.mapTileNum[col][row]].collision;
+    }
+
     public int checkObject(Entity entity, boolean player) {
         int index = 999;
 
-        for(int i = 0; i < gp.obj.length; i++) {
-            if(gp.obj[i] != null) {
-                //get entity's solid area position
-                entity.solidarea.x = entity.worldX+ entity.solidarea.x;
-                entity.solidarea.y = entity.worldY+ entity.solidarea.y;
+        //where the entity's solid area will be after this step
+        //worked out with ints instead of moving the Rectangles around, so nothing shared gets written every frame
+        int entityLeft = entity.worldX + entity.solidarea.x;
+        int entityTop = entity.worldY + entity.solidarea.y;
+
+        switch(entity.direction) {
+            case Entity.UP:
+                entityTop -= entity.speed;
+                break;
+            case Entity.DOWN:
+                entityTop += entity.speed;
+                break;
+            case Entity.LEFT:
+                entityLeft -= entity.speed;
+                break;
+            case Entity.RIGHT:
+                entityLeft += entity.speed;
+                break;
+        }
 
-                gp.obj[i].solidArea.x = gp.obj[i].worldX + gp.obj[i].solidArea.x;
-                gp.obj[i].solidArea.y = gp.obj[i].worldY + gp.obj[i].solidArea.y;
+        for(int i = 0; i < gp.obj.length; i++) {
+            SuperObject obj = gp.obj[i];
+            if(obj != null) {
+                int objLeft = obj.worldX + obj.solidArea.x;
+                int objTop = obj.worldY + obj.solidArea.y;
 
-                switch(entity.direction) {
-                    case "up":
-                        entity.solidarea.y -= entity.speed;
-                        if(entity.solidarea.intersects(gp.obj[i].solidArea)) {
-                            if(gp.obj[i].collision == true){
-                                entity.collisionOn = true;
-                            }
-                            if (player == true) {
-                                index = i;
-                            }
-                            index = i;
-                        }
-                        break;
-                    case "down":
-                        entity.solidarea.y += entity.speed;
-                        if(entity.solidarea.intersects(gp.obj[i].solidArea)) {
-                            if(gp.obj[i].collision == true){
-                                entity.collisionOn = true;
-                            }
-                            if (player == true) {
-                                index = i;
-                            }
-                            index = i;
-                        }
-                        break;
-                    case "left":
-                        entity.solidarea.x -= entity.speed;
-                        if(entity.solidarea.intersects(gp.obj[i].solidArea)) {
-                            if(gp.obj[i].collision == true){
-                                entity.collisionOn = true;
-                            }
-                            if (player == true) {
-                                index = i;
-                            }
-                            index = i;
-                        }
-                        break;
-                    case "right":
-                        entity.solidarea.x += entity.speed;
-                        if(entity.solidarea.intersects(gp.obj[i].solidArea)) {
-                            if(gp.obj[i].collision == true){
-                                entity.collisionOn = true;
-                            }
-                            if (player == true) {
-                                index = i;
-                            }
-                            index = i;
-                        }
-                        break;
+                if(intersects(entityLeft, entityTop, entity.solidarea.width, entity.solidarea.height,
+                        objLeft, objTop, obj.solidArea.width, obj.solidArea.height)) {
+                    if(obj.collision == true){
+                        entity.collisionOn = true;
+                    }
+                    index = i;
                 }
-                entity.solidarea.x = entity.solidAreaDefaultX;
-                entity.solidarea.y = entity.solidAreaDefaultY;
-                gp.obj[i].solidArea.x = gp.obj[i].solidAreaDefaultX;
-                gp.obj[i].solidArea.y = gp.obj[i].solidAreaDefaultY;
             }
         }
         return index;
     }
+
+    //same as Rectangle.intersects
+    static boolean intersects(int x1, int y1, int w1, int h1, int x2, int y2, int w2, int h2) {
+        if (w1 <= 0 || h1 <= 0 || w2 <= 0 || h2 <= 0) {
+            return false;
+        }
+        return x1 < x2 + w2 && x2 < x1 + w1 && y1 < y2 + h2 && y2 < y1 + h1;
+    }
 }
@@ -1,33 +1,48 @@
 package main;
 
 import entity.Player;
+import net.GameClient;
 import object.SuperObject;
 import tile.TileManager;
+import tile.WorldGenerator;
 
 import javax.swing.*;
 import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.util.concurrent.atomic.AtomicReference;
 
 public class Gamepanel extends JPanel implements Runnable {
     //screen settings
-    final int originalTileSize = 16; //16x16 tiles
+    public final int originalTileSize = 16; //16x16 tiles
     public final int tileSize = originalTileSize * 3; //48x48 tiles
     public int maxScreenCol = 16;
     public int maxScreenRow = 12;
     public final int screenWidth = tileSize * maxScreenCol; //768 pixels
     public final int screenHeight = tileSize * maxScreenRow; //576 pixels
 
+    //render settings
+    //native: draw at 16px into a 256x192 back buffer and scale that to the window in one go
+    //otherwise every drawImage scales its own 16px image up to 48px
+    public boolean nativeRender = true;
+    public boolean integerScaling = false; //only scale by whole numbers (2x, 3x..) in native mode
+    public final int nativeWidth = originalTileSize * maxScreenCol; //256 pixels
+    public final int nativeHeight = originalTileSize * maxScreenRow; //192 pixels
+    public int drawTileSize = tileSize; //size a tile is being drawn at right now
+    BufferedImage backBuffer;
+    Graphics2D backGraphics;
+
     //world settings
-    public final int maxWorldCol = 74;
-    public final int maxWorldRow = 74;
+    public int maxWorldCol = 74;
+    public int maxWorldRow = 74;
 
-    public final int worldWidth = tileSize * maxWorldCol;
-    public final int worldHeight = tileSize * maxWorldRow;
+    public int worldWidth = tileSize * maxWorldCol;
+    public int worldHeight = tileSize * maxWorldRow;
 
     //fps
     int fps = 60;
 
-    TileManager tileM = new TileManager(this);
-    KeyHandler keyH = new KeyHandler();
+    public TileManager tileM = new TileManager(this);
+    public KeyHandler keyH = new KeyHandler();
     public Player player = new Player(this, keyH);
     Thread gameThread; //this is the game clock
     public SuperObject obj[] = new SuperObject[10];
@@ -39,6 +54,19 @@ public class Gamepanel extends JPanel implements Runnable {
 
     public AssetSetter aSetter = new AssetSetter(this);
 
+    //npcs and other entities go in here, it decides how often each one is updated
+    public AreaOfInterest aoi = new AreaOfInterest(this);
+
+    //bytes allocated by update() and by drawing, printed with the fps
+    //updateAllocations is only touched by the game thread and renderAllocations only by the edt (paintComponent),
+    //so once a second the game thread hands its half of the line over and the next paint adds the render half
+    public AllocationTracker updateAllocations = new AllocationTracker();
+    public AllocationTracker renderAllocations = new AllocationTracker();
+    final AtomicReference<String> pendingReport = new AtomicReference<>();
+
+    //set when we are playing on a server instead of locally
+    public GameClient client;
+
     public Gamepanel() {
         this.setPreferredSize(new Dimension(screenWidth, screenHeight));
         this.setBackground(Color.black);
@@ -51,6 +79,15 @@ public class Gamepanel extends JPanel implements Runnable {
         aSetter.setObject();
     }
 
+    //instead of setupGame, makes a new world from the seed and puts the player and objects in it
+    public void setupGeneratedGame(long seed, int size) {
+        WorldGenerator gen = new WorldGenerator(tileM);
+        gen.generate(seed, size);
+        aSetter.setObject(gen);
+        player.worldX = gen.spawnCol * tileSize;
+        player.worldY = gen.spawnRow * tileSize;
+    }
+
     public void startGameThread() {
 
         gameThread = new Thread(this);
@@ -100,14 +137,21 @@ public class Gamepanel extends JPanel implements Runnable {
             timer += currentTime - lastTime;
             lastTime = currentTime;
             if (delta >= 1) {
+                updateAllocations.begin();
                 update();
+                updateAllocations.end();
                 repaint();
                 delta--;
                 drawCount++;
             }
 
             if( timer >= 1000000000) {
-                System.out.println("FPS: " + drawCount);
+                String missed = pendingReport.getAndSet("FPS: " + drawCount + " | update alloc: " + updateAllocations);
+                if (missed != null) {
+                    //nothing got painted for a whole second (minimized window), print it without the render half
+                    System.out.println(missed + " | render alloc: not painted");
+                }
+                updateAllocations.reset();
                 drawCount = 0;
                 timer = 0;
             }
@@ -117,14 +161,67 @@ public class Gamepanel extends JPanel implements Runnable {
     }
 
         public void update(){
-            player.update();
+            //swap in any maps or tiles that changed on disk before this tick runs
+            tileM.applyReloads();
+
+            if (client != null) {
+                //the client predicts the player locally and corrects it from the server
+                client.update();
+            } else {
+                player.update();
+            }
+
+            //everything else, full rate near the player, slower further away, frozen far away
+            aoi.update(player.worldX, player.worldY);
     }
 
         public void paintComponent(Graphics g) {
+        renderAllocations.begin();
         super.paintComponent(g);
         Graphics2D g2 = (Graphics2D) g;
         //graphics2d has bit more functions
             //we can use this to draw , thats why we converqt to graphics2d
+
+            if (nativeRender) {
+                //draw everything at 16px into the small back buffer, then scale it up once
+                if (backBuffer == null) {
+                    backBuffer = new BufferedImage(nativeWidth, nativeHeight, BufferedImage.TYPE_INT_RGB);
+                    backGraphics = backBuffer.createGraphics();
+                }
+                backGraphics.setColor(Color.black);
+                backGraphics.fillRect(0, 0, nativeWidth, nativeHeight);
+                drawWorld(backGraphics, originalTileSize);
+
+                //biggest size that fits the window without stretching, centered
+                double scale = Math.min(getWidth() / (double) nativeWidth, getHeight() / (double) nativeHeight);
+                if (integerScaling && scale >= 1) {
+                    scale = Math.floor(scale);
+                }
+                int width = (int) Math.round(nativeWidth * scale);
+                int height = (int) Math.round(nativeHeight * scale);
+                g2.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_NEAREST_NEIGHBOR);
+                g2.drawImage(backBuffer, (getWidth() - width) / 2, (getHeight() - height) / 2, width, height, null);
+            } else {
+                //old way, every image is scaled to 48px on its own
+                g2.translate((getWidth() - screenWidth) / 2, (getHeight() - screenHeight) / 2);
+                drawWorld(g2, tileSize);
+            }
+            g2.dispose();
+            renderAllocations.end();
+
+            String report = pendingReport.getAndSet(null);
+            if (report != null) {
+                System.out.println(report + " | render alloc: " + renderAllocations);
+                renderAllocations.reset();
+            }
+
+            //this will dispose the graphics2d object so that we can use it again
+            //its a good practice btw
+        }
+
+    //draws one frame of the world with tiles drawTileSize big, the top left of the screen is (0,0)
+    public void drawWorld(Graphics2D g2, int drawTileSize) {
+            this.drawTileSize = drawTileSize;
             tileM.draw(g2);
             //make sure to draw tiles before the player because these are layers
 
@@ -136,13 +233,20 @@ public class Gamepanel extends JPanel implements Runnable {
                 }
             }
 
+            //other players on the server
+            if (client != null) {
+                client.draw(g2);
+            }
+
             player.draw(g2);
             //for now we using tilesize but then we can use this make the character as well
-            g2.dispose();
+    }
 
-            //this will dispose the graphics2d object so that we can use it again
-            //its a good practice btw
-        }
+    //world pixels (48 per tile) to pixels on whatever we are drawing into
+    //floorDiv so everything left of the camera rounds the same way as everything right of it
+    public int toScreen(int pixels) {
+        return Math.floorDiv(pixels * drawTileSize, tileSize);
+    }
 
 }
 
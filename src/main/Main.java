@@ -1,13 +1,49 @@
 package main;
+import net.GameClient;
+import net.GameServer;
+import net.Protocol;
+import tile.WorldGenerator;
+
 import javax.swing.*;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.List;
 
 public class Main {
 
-    public static void main(String[] args) {
+    public static void main(String[] args) throws IOException {
+        //--server [port] runs the dedicated server with no window
+        if (args.length > 0 && args[0].equals("--server")) {
+            GameServer.main(args.length > 1 ? new String[]{args[1]} : new String[0]);
+            return;
+        }
+
+        //flags can come in any order, --seed N [size] and --connect host[:port] take the values right after them
+        List<String> options = Arrays.asList(args);
+
+        //--seed N [size] plays a generated world instead of map04, checked before any window opens
+        int seedAt = options.indexOf("--seed");
+        boolean generated = seedAt >= 0;
+        if (generated && (seedAt + 1 >= args.length || args[seedAt + 1].startsWith("--"))) {
+            System.out.println("--seed needs a number");
+            System.exit(1);
+        }
+        //the size is optional, whatever comes next might be another flag
+        boolean hasSize = generated && seedAt + 2 < args.length && !args[seedAt + 2].startsWith("--");
+        int worldSize = hasSize ? Integer.parseInt(args[seedAt + 2]) : 256;
+        if (generated && worldSize < WorldGenerator.MIN_SIZE) {
+            System.out.println("world size has to be at least " + WorldGenerator.MIN_SIZE + ", got " + worldSize);
+            System.exit(1);
+        }
+
         JFrame window = new JFrame();
         window.setDefaultCloseOperation(JFrame.EXIT_ON_CLOSE);
-        window.setResizable(false);
         Gamepanel gamePanel = new Gamepanel();
+        //--direct draws the old way (every image scaled to 48px), --integer-scale only scales the native buffer 2x, 3x..
+        gamePanel.nativeRender = !options.contains("--direct");
+        gamePanel.integerScaling = options.contains("--integer-scale");
+        //the native back buffer can be scaled to any window size
+        window.setResizable(gamePanel.nativeRender);
         window.add(gamePanel);
 
         window.pack();
@@ -15,7 +51,24 @@ public class Main {
         window.setLocationRelativeTo(null);
         window.setVisible(true);
 
-        gamePanel.setupGame(); //these are the objects
+        if (generated) {
+            gamePanel.setupGeneratedGame(Long.parseLong(args[seedAt + 1]), worldSize);
+        } else {
+            gamePanel.setupGame(); //these are the objects
+        }
+        gamePanel.tileM.startWatching(); //reload res/maps and res/tiles when they change
+
+        //--connect host[:port] plays on a server
+        int connectAt = options.indexOf("--connect");
+        if (connectAt >= 0 && connectAt + 1 < args.length) {
+            String host = args[connectAt + 1];
+            int port = Protocol.DEFAULT_PORT;
+            if (host.contains(":")) {
+                port = Integer.parseInt(host.substring(host.indexOf(':') + 1));
+                host = host.substring(0, host.indexOf(':'));
+            }
+            gamePanel.client = new GameClient(gamePanel, gamePanel.keyH, host, port);
+        }
         gamePanel.startGameThread();
     }
 }
\ No newline at end of file
@@ -0,0 +1,75 @@
+package net;
+
+import entity.Player;
+import main.Gamepanel;
+import main.KeyHandler;
+
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.SocketChannel;
+
+//one of these per connected client on the server side
+class ClientConnection {
+    final int slot;
+    final int generation;
+    final SocketChannel channel;
+    SelectionKey key;
+
+    //each client gets its own player + key handler, the world (gp) is shared
+    final KeyHandler keyH = new KeyHandler();
+    final Player player;
+
+    final ByteBuffer in = ByteBuffer.allocate(Protocol.MAX_MESSAGE);
+    final ByteBuffer out = ByteBuffer.allocate(Protocol.MAX_MESSAGE * 4);
+
+    //inputs waiting to be simulated, one is used per server tick
+    final int[] inputSeq = new int[32];
+    final int[] inputKeys = new int[32];
+    int inputHead = 0;
+    int inputCount = 0;
+    int lastProcessedSeq = 0;
+
+    //what this client was last sent about every other slot
+    //tcp gives us ordered delivery so the last thing we sent is always the baseline for the next delta
+    final boolean[] sentVisible = new boolean[Protocol.MAX_CLIENTS];
+    final int[] sentGeneration = new int[Protocol.MAX_CLIENTS];
+    final int[] sentX = new int[Protocol.MAX_CLIENTS];
+    final int[] sentY = new int[Protocol.MAX_CLIENTS];
+    final int[] sentAnim = new int[Protocol.MAX_CLIENTS];
+    int sentObjectMask = -1;
+
+    boolean closed = false;
+
+    ClientConnection(int slot, int generation, SocketChannel channel, Gamepanel gp) {
+        this.slot = slot;
+        this.generation = generation;
+        this.channel = channel;
+        this.player = new Player(gp, keyH);
+    }
+
+    void queueInput(int seq, int keys) {
+        if (inputCount == inputSeq.length) {
+            //client is running way ahead of us, drop the oldest input
+            //prediction will be corrected by the next state anyway
+            inputHead = (inputHead + 1) % inputSeq.length;
+            inputCount--;
+        }
+        int i = (inputHead + inputCount) % inputSeq.length;
+        inputSeq[i] = seq;
+        inputKeys[i] = keys;
+        inputCount++;
+    }
+
+    //one input per tick, same as the client predicting one update per frame
+    void simulate() {
+        if (inputCount > 0) {
+            Protocol.applyKeys(keyH, inputKeys[inputHead]);
+            lastProcessedSeq = inputSeq[inputHead];
+            inputHead = (inputHead + 1) % inputSeq.length;
+            inputCount--;
+        } else {
+            Protocol.applyKeys(keyH, 0);
+        }
+        player.update();
+    }
+}
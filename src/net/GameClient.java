@@ -0,0 +1,204 @@
+package net;
+
+import entity.Entity;
+import entity.Player;
+import main.Gamepanel;
+import main.KeyHandler;
+
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SocketChannel;
+
+//client side of the server mode
+//we still run player.update() locally every frame so movement feels instant (prediction)
+//when a state comes back from the server we snap to its position and replay the inputs it hasnt seen yet
+public class GameClient {
+    final Gamepanel gp;
+    final KeyHandler keyH;
+    final SocketChannel channel;
+
+    final ByteBuffer in = ByteBuffer.allocate(Protocol.MAX_MESSAGE);
+    final ByteBuffer out = ByteBuffer.allocate(Protocol.MAX_MESSAGE);
+
+    public int slot = -1;
+    public int serverTick = 0;
+    public boolean connected = true;
+
+    //inputs we have sent but the server hasnt acknowledged yet
+    final int[] pendingKeys = new int[256];
+    int seq = 0;
+    int ackedSeq = 0;
+
+    //how far the prediction was off when the last state arrived, in pixels
+    public int lastCorrection = 0;
+
+    //other players in our view area, indexed by server slot
+    public final boolean[] remoteVisible = new boolean[Protocol.MAX_CLIENTS];
+    public final int[] remoteX = new int[Protocol.MAX_CLIENTS];
+    public final int[] remoteY = new int[Protocol.MAX_CLIENTS];
+    public final int[] remoteAnim = new int[Protocol.MAX_CLIENTS];
+
+    public GameClient(Gamepanel gp, KeyHandler keyH, String host, int port) throws IOException {
+        this.gp = gp;
+        this.keyH = keyH;
+        channel = SocketChannel.open(new InetSocketAddress(host, port));
+        channel.configureBlocking(false);
+        channel.socket().setTcpNoDelay(true);
+    }
+
+    //called once per frame instead of player.update()
+    public void update() {
+        if (!connected) {
+            return;
+        }
+        try {
+            read();
+
+            int keys = Protocol.keysOf(keyH);
+            if (seq - ackedSeq < pendingKeys.length) {
+                seq++;
+                pendingKeys[seq % pendingKeys.length] = keys;
+                out.putInt(Protocol.INPUT_LENGTH).put(Protocol.MSG_INPUT).putInt(seq).put((byte) keys);
+                gp.player.update();
+            }
+            //else: the server has stopped acking, dont predict further than we can replay
+
+            out.flip();
+            channel.write(out);
+            out.compact();
+        } catch (IOException e) {
+            e.printStackTrace();
+            close();
+        }
+    }
+
+    void read() throws IOException {
+        int n = channel.read(in);
+        if (n < 0) {
+            throw new IOException("server closed the connection");
+        }
+        in.flip();
+        while (in.remaining() >= 4) {
+            int length = in.getInt(in.position());
+            if (length <= 0 || length > Protocol.MAX_MESSAGE - 4) {
+                throw new IOException("bad message length " + length);
+            }
+            if (in.remaining() < 4 + length) {
+                break;
+            }
+            in.getInt();
+            int end = in.position() + length;
+            byte type = in.get();
+            if (type == Protocol.MSG_WELCOME) {
+                slot = in.getInt();
+            } else if (type == Protocol.MSG_STATE) {
+                readState();
+            }
+            in.position(end);
+        }
+        in.compact();
+    }
+
+    void readState() {
+        serverTick = in.getInt();
+        int ack = in.getInt();
+        int x = in.getInt();
+        int y = in.getInt();
+        int anim = in.get();
+
+        if (in.get() == 1) {
+            int objectMask = in.getInt();
+            for (int i = 0; i < gp.obj.length && i < 32; i++) {
+                if ((objectMask & (1 << i)) == 0) {
+                    gp.obj[i] = null;
+                }
+            }
+        }
+
+        int count = in.getShort();
+        for (int i = 0; i < count; i++) {
+            int s = in.getShort();
+            int flags = in.get();
+            if ((flags & Protocol.ENTITY_REMOVED) != 0) {
+                remoteVisible[s] = false;
+                continue;
+            }
+            if ((flags & Protocol.ENTITY_FULL) != 0) {
+                remoteVisible[s] = true;
+                remoteX[s] = in.getInt();
+                remoteY[s] = in.getInt();
+                remoteAnim[s] = in.get();
+                continue;
+            }
+            if ((flags & Protocol.ENTITY_MOVED) != 0) {
+                remoteX[s] += in.getShort();
+                remoteY[s] += in.getShort();
+            }
+            if ((flags & Protocol.ENTITY_ANIM) != 0) {
+                remoteAnim[s] = in.get();
+            }
+        }
+
+        reconcile(ack, x, y, anim);
+    }
+
+    void reconcile(int ack, int x, int y, int anim) {
+        Player player = gp.player;
+        int predictedX = player.worldX;
+        int predictedY = player.worldY;
+
+        ackedSeq = ack;
+        player.worldX = x;
+        player.worldY = y;
+        Protocol.applyAnim(player, anim);
+
+        //replay everything the server hasnt processed yet on top of its position
+        int realKeys = Protocol.keysOf(keyH);
+        for (int s = ack + 1; s <= seq; s++) {
+            Protocol.applyKeys(keyH, pendingKeys[s % pendingKeys.length]);
+            player.update();
+        }
+        Protocol.applyKeys(keyH, realKeys);
+
+        lastCorrection = Math.abs(player.worldX - predictedX) + Math.abs(player.worldY - predictedY);
+    }
+
+    public void draw(Graphics2D g2) {
+        Player player = gp.player;
+        for (int s = 0; s < remoteVisible.length; s++) {
+            if (!remoteVisible[s]) {
+                continue;
+            }
+            int screenX = remoteX[s] - player.worldX + player.screenX;
+            int screenY = remoteY[s] - player.worldY + player.screenY;
+            g2.drawImage(spriteOf(remoteAnim[s]), gp.toScreen(screenX), gp.toScreen(screenY), gp.drawTileSize, gp.drawTileSize, null);
+        }
+    }
+
+    BufferedImage spriteOf(int anim) {
+        Player p = gp.player;
+        boolean first = (anim & 0x0f) == 1;
+        switch (anim >> 4) {
+            case Entity.UP:
+                return first ? p.up1 : p.up2;
+            case Entity.LEFT:
+                return first ? p.left1 : p.left2;
+            case Entity.RIGHT:
+                return first ? p.right1 : p.right2;
+            default:
+                return first ? p.down1 : p.down2;
+        }
+    }
+
+    public void close() {
+        connected = false;
+        try {
+            channel.close();
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+}
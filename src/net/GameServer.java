@@ -0,0 +1,402 @@
+package net;
+
+import main.Gamepanel;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.Iterator;
+import java.util.concurrent.locks.LockSupport;
+
+//dedicated server, runs the world (player movement + collision) for every client
+//everything happens on one thread: poll sockets -> simulate -> send states -> sleep until next tick
+public class GameServer implements Runnable {
+    final Gamepanel gp;
+    final ServerSocketChannel serverChannel;
+    final Selector selector;
+
+    final ClientConnection[] clients = new ClientConnection[Protocol.MAX_CLIENTS];
+    final int[] slotGeneration = new int[Protocol.MAX_CLIENTS];
+    int clientCount = 0;
+
+    int tickRate = 60;
+    public int tick = 0;
+    volatile boolean running = true;
+
+    //scratch buffer a state message is built in before it is copied to the client
+    final ByteBuffer scratch = ByteBuffer.allocate(Protocol.MAX_MESSAGE);
+
+    //stats, printed once a second like the fps counter
+    long tickNanos = 0;
+    long maxTickNanos = 0;
+    long bytesSent = 0;
+    //over the whole run (from statsFrom on, so tests can skip connecting and warmup), read after the server stopped
+    //these use the cpu time of the server thread, when clients run in the same process (LoopbackTest) on a
+    //small machine the wall clock also counts the time they had the cpu, which isnt the server being slow
+    public volatile long statsFrom = 0;
+    public long worstTickCpuNanos = 0;
+    public long slowTicks = 0; //ticks that used more than one tick interval of cpu
+    final ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+
+    public GameServer(Gamepanel gp, InetSocketAddress address) throws IOException {
+        this.gp = gp;
+        selector = Selector.open();
+        serverChannel = ServerSocketChannel.open();
+        serverChannel.configureBlocking(false);
+        serverChannel.bind(address);
+        serverChannel.register(selector, SelectionKey.OP_ACCEPT);
+    }
+
+    public int getPort() {
+        return serverChannel.socket().getLocalPort();
+    }
+
+    public int getClientCount() {
+        return clientCount;
+    }
+
+    public void stop() {
+        running = false;
+        selector.wakeup();
+    }
+
+    public void run() {
+        long tickInterval = 1000000000L / tickRate;
+        long nextTick = System.nanoTime();
+        long timer = System.nanoTime();
+        int ticks = 0;
+
+        while (running) {
+            long start = System.nanoTime();
+            long startCpu = threads.getCurrentThreadCpuTime();
+            try {
+                pollNetwork();
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+            simulate();
+            sendStates();
+            flushAll();
+            tick++;
+
+            long took = System.nanoTime() - start;
+            tickNanos += took;
+            maxTickNanos = Math.max(maxTickNanos, took);
+            if (start >= statsFrom) {
+                long cpu = threads.getCurrentThreadCpuTime() - startCpu;
+                worstTickCpuNanos = Math.max(worstTickCpuNanos, cpu);
+                if (cpu > tickInterval) {
+                    slowTicks++;
+                }
+            }
+            ticks++;
+
+            if (System.nanoTime() - timer >= 1000000000L) {
+                System.out.println("SERVER clients: " + clientCount
+                        + " avg tick: " + String.format("%.3f", tickNanos / (ticks * 1e6)) + "ms"
+                        + " max tick: " + String.format("%.3f", maxTickNanos / 1e6) + "ms"
+                        + " out: " + bytesSent / 1024 + "KB/s");
+                tickNanos = 0;
+                maxTickNanos = 0;
+                bytesSent = 0;
+                ticks = 0;
+                timer = System.nanoTime();
+            }
+
+            nextTick += tickInterval;
+            long sleep = nextTick - System.nanoTime();
+            if (sleep > 0) {
+                LockSupport.parkNanos(sleep);
+            } else if (sleep < -tickInterval * 5) {
+                //we fell way behind, dont try to run a burst of ticks to catch up
+                nextTick = System.nanoTime();
+            }
+        }
+
+        for (ClientConnection c : clients) {
+            if (c != null) {
+                disconnect(c);
+            }
+        }
+        try {
+            serverChannel.close();
+            selector.close();
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+
+    void pollNetwork() throws IOException {
+        selector.selectNow();
+        Iterator<SelectionKey> it = selector.selectedKeys().iterator();
+        while (it.hasNext()) {
+            SelectionKey key = it.next();
+            it.remove();
+            if (!key.isValid()) {
+                continue;
+            }
+            if (key.isAcceptable()) {
+                accept();
+                continue;
+            }
+            ClientConnection c = (ClientConnection) key.attachment();
+            try {
+                if (key.isReadable()) {
+                    read(c);
+                }
+                if (key.isValid() && key.isWritable()) {
+                    flush(c);
+                }
+            } catch (IOException e) {
+                disconnect(c);
+            } catch (RuntimeException e) {
+                //a bug or a weird message from one client shouldnt take the whole server down
+                e.printStackTrace();
+                disconnect(c);
+            }
+        }
+    }
+
+    void accept() throws IOException {
+        SocketChannel channel;
+        while ((channel = serverChannel.accept()) != null) {
+            int slot = -1;
+            for (int i = 0; i < clients.length; i++) {
+                if (clients[i] == null) {
+                    slot = i;
+                    break;
+                }
+            }
+            if (slot == -1) {
+                //server is full
+                channel.close();
+                continue;
+            }
+            channel.configureBlocking(false);
+            channel.socket().setTcpNoDelay(true);
+
+            slotGeneration[slot]++;
+            ClientConnection c = new ClientConnection(slot, slotGeneration[slot], channel, gp);
+            c.key = channel.register(selector, SelectionKey.OP_READ, c);
+            clients[slot] = c;
+            clientCount++;
+
+            c.out.putInt(5).put(Protocol.MSG_WELCOME).putInt(slot);
+        }
+    }
+
+    void read(ClientConnection c) throws IOException {
+        int n = c.channel.read(c.in);
+        if (n < 0) {
+            throw new IOException("client closed");
+        }
+        c.in.flip();
+        while (c.in.remaining() >= 4) {
+            int length = c.in.getInt(c.in.position());
+            if (length <= 0 || length > Protocol.MAX_MESSAGE - 4) {
+                throw new IOException("bad message length " + length);
+            }
+            if (c.in.remaining() < 4 + length) {
+                break;
+            }
+            c.in.getInt();
+            int end = c.in.position() + length;
+            byte type = c.in.get();
+            if (type == Protocol.MSG_INPUT) {
+                if (length != Protocol.INPUT_LENGTH) {
+                    throw new IOException("bad input message length " + length);
+                }
+                int seq = c.in.getInt();
+                int keys = c.in.get();
+                c.queueInput(seq, keys);
+            }
+            //skip anything we dont understand
+            c.in.position(end);
+        }
+        c.in.compact();
+    }
+
+    void simulate() {
+        for (ClientConnection c : clients) {
+            if (c != null) {
+                c.simulate();
+            }
+        }
+    }
+
+    void sendStates() {
+        int objectMask = 0;
+        for (int i = 0; i < gp.obj.length && i < 32; i++) {
+            if (gp.obj[i] != null) {
+                objectMask |= 1 << i;
+            }
+        }
+        for (ClientConnection c : clients) {
+            if (c != null && !c.closed) {
+                writeState(c, objectMask);
+            }
+        }
+    }
+
+    //state message payload:
+    //int tick, int last processed input seq, int x, int y, byte anim (the client's own player)
+    //byte hasObjects [int objectMask]
+    //short entryCount, then per entry: short slot, byte flags, [int x, int y, byte anim] | [short dx, short dy] [byte anim]
+    void writeState(ClientConnection c, int objectMask) {
+        ByteBuffer b = scratch;
+        b.clear();
+        b.putInt(0); //length, filled in at the end
+        b.put(Protocol.MSG_STATE);
+        b.putInt(tick);
+        b.putInt(c.lastProcessedSeq);
+        b.putInt(c.player.worldX);
+        b.putInt(c.player.worldY);
+        b.put((byte) Protocol.animOf(c.player));
+
+        if (objectMask != c.sentObjectMask) {
+            b.put((byte) 1);
+            b.putInt(objectMask);
+            c.sentObjectMask = objectMask;
+        } else {
+            b.put((byte) 0);
+        }
+
+        int countPos = b.position();
+        b.putShort((short) 0);
+        int count = 0;
+
+        //view area is the client's screen plus a couple of tiles so things dont pop in at the edge
+        int viewX = gp.screenWidth / 2 + gp.tileSize * 2;
+        int viewY = gp.screenHeight / 2 + gp.tileSize * 2;
+
+        for (int slot = 0; slot < clients.length; slot++) {
+            if (b.remaining() < 16) {
+                //message is full, whatever is left goes out next tick
+                break;
+            }
+            ClientConnection other = clients[slot];
+            boolean visible = other != null && other != c && !other.closed
+                    && Math.abs(other.player.worldX - c.player.worldX) <= viewX
+                    && Math.abs(other.player.worldY - c.player.worldY) <= viewY;
+
+            if (!visible) {
+                if (c.sentVisible[slot]) {
+                    b.putShort((short) slot);
+                    b.put((byte) Protocol.ENTITY_REMOVED);
+                    c.sentVisible[slot] = false;
+                    count++;
+                }
+                continue;
+            }
+
+            int x = other.player.worldX;
+            int y = other.player.worldY;
+            int anim = Protocol.animOf(other.player);
+
+            if (!c.sentVisible[slot] || c.sentGeneration[slot] != other.generation
+                    || Math.abs(x - c.sentX[slot]) > Short.MAX_VALUE
+                    || Math.abs(y - c.sentY[slot]) > Short.MAX_VALUE) {
+                b.putShort((short) slot);
+                b.put((byte) Protocol.ENTITY_FULL);
+                b.putInt(x);
+                b.putInt(y);
+                b.put((byte) anim);
+                count++;
+            } else {
+                int flags = 0;
+                if (x != c.sentX[slot] || y != c.sentY[slot]) {
+                    flags |= Protocol.ENTITY_MOVED;
+                }
+                if (anim != c.sentAnim[slot]) {
+                    flags |= Protocol.ENTITY_ANIM;
+                }
+                if (flags == 0) {
+                    //nothing changed, nothing to send
+                    continue;
+                }
+                b.putShort((short) slot);
+                b.put((byte) flags);
+                if ((flags & Protocol.ENTITY_MOVED) != 0) {
+                    b.putShort((short) (x - c.sentX[slot]));
+                    b.putShort((short) (y - c.sentY[slot]));
+                }
+                if ((flags & Protocol.ENTITY_ANIM) != 0) {
+                    b.put((byte) anim);
+                }
+                count++;
+            }
+            c.sentVisible[slot] = true;
+            c.sentGeneration[slot] = other.generation;
+            c.sentX[slot] = x;
+            c.sentY[slot] = y;
+            c.sentAnim[slot] = anim;
+        }
+
+        b.putShort(countPos, (short) count);
+        b.putInt(0, b.position() - 4);
+        b.flip();
+
+        if (c.out.remaining() < b.remaining()) {
+            //client isnt reading fast enough, we cant keep queueing for it
+            disconnect(c);
+            return;
+        }
+        c.out.put(b);
+    }
+
+    void flushAll() {
+        for (ClientConnection c : clients) {
+            if (c != null && !c.closed) {
+                try {
+                    flush(c);
+                } catch (IOException e) {
+                    disconnect(c);
+                }
+            }
+        }
+    }
+
+    void flush(ClientConnection c) throws IOException {
+        c.out.flip();
+        bytesSent += c.channel.write(c.out);
+        boolean pending = c.out.hasRemaining();
+        c.out.compact();
+        //only ask for OP_WRITE while the socket buffer is full
+        int ops = pending ? SelectionKey.OP_READ | SelectionKey.OP_WRITE : SelectionKey.OP_READ;
+        if (c.key.interestOps() != ops) {
+            c.key.interestOps(ops);
+        }
+    }
+
+    void disconnect(ClientConnection c) {
+        if (c.closed) {
+            return;
+        }
+        c.closed = true;
+        c.key.cancel();
+        try {
+            c.channel.close();
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+        clients[c.slot] = null;
+        clientCount--;
+    }
+
+    public static void main(String[] args) throws IOException {
+        System.setProperty("java.awt.headless", "true");
+        int port = args.length > 0 ? Integer.parseInt(args[0]) : Protocol.DEFAULT_PORT;
+
+        Gamepanel gp = new Gamepanel();
+        gp.setupGame();
+        GameServer server = new GameServer(gp, new InetSocketAddress(port));
+        System.out.println("SERVER listening on port " + server.getPort());
+        server.run();
+    }
+}
@@ -0,0 +1,90 @@
+package net;
+
+import main.Gamepanel;
+
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.util.Random;
+import java.util.concurrent.locks.LockSupport;
+
+//starts a server and a bunch of headless clients over loopback and lets them walk around
+//usage: LoopbackTest [clients] [seconds] [warmupSeconds]
+//prints the server stats every second and how often prediction had to be corrected at the end
+//exits with 1 if a client got disconnected or a server tick after the warmup took longer than 1/60s, so it can be used as a test
+//the warmup is there because connecting everyone and the jit make the first few seconds slow
+public class LoopbackTest {
+
+    public static void main(String[] args) throws Exception {
+        System.setProperty("java.awt.headless", "true");
+        int clientCount = args.length > 0 ? Integer.parseInt(args[0]) : 200;
+        int seconds = args.length > 1 ? Integer.parseInt(args[1]) : 10;
+        int warmupSeconds = args.length > 2 ? Integer.parseInt(args[2]) : 5;
+
+        Gamepanel world = new Gamepanel();
+        world.setupGame();
+        GameServer server = new GameServer(world, new InetSocketAddress(InetAddress.getLoopbackAddress(), 0));
+        Thread serverThread = new Thread(server, "server");
+        serverThread.start();
+
+        GameClient[] clients = new GameClient[clientCount];
+        for (int i = 0; i < clientCount; i++) {
+            //every client has its own copy of the world to predict in, just like a real one would
+            Gamepanel gp = new Gamepanel();
+            gp.setupGame();
+            clients[i] = new GameClient(gp, gp.keyH, "127.0.0.1", server.getPort());
+            gp.client = clients[i];
+        }
+
+        Random random = new Random(1);
+        long corrections = 0;
+        long correctedFrames = 0;
+        long frames = 0;
+        long frameInterval = 1000000000L / 60;
+        server.statsFrom = System.nanoTime() + warmupSeconds * 1000000000L;
+        long end = server.statsFrom + seconds * 1000000000L;
+        long nextFrame = System.nanoTime();
+
+        while (System.nanoTime() < end) {
+            for (GameClient c : clients) {
+                //change direction now and then, like someone holding a key down
+                if (random.nextInt(30) == 0) {
+                    Protocol.applyKeys(c.keyH, 1 << random.nextInt(5));
+                }
+                c.update();
+                if (c.lastCorrection != 0) {
+                    corrections += c.lastCorrection;
+                    correctedFrames++;
+                    c.lastCorrection = 0;
+                }
+                frames++;
+            }
+            nextFrame += frameInterval;
+            long sleep = nextFrame - System.nanoTime();
+            if (sleep > 0) {
+                LockSupport.parkNanos(sleep);
+            }
+        }
+
+        int disconnected = 0;
+        for (GameClient c : clients) {
+            if (!c.connected) {
+                disconnected++;
+            }
+            c.close();
+        }
+        server.stop();
+        serverThread.join();
+
+        System.out.println("clients: " + clientCount + " disconnected: " + disconnected);
+        System.out.println("client frames: " + frames + " frames with a correction: " + correctedFrames
+                + " total correction: " + corrections + "px");
+        System.out.println("server worst tick cpu after warmup: " + String.format("%.3f", server.worstTickCpuNanos / 1e6) + "ms"
+                + " slow ticks: " + server.slowTicks);
+
+        if (disconnected > 0 || server.slowTicks > 0) {
+            System.out.println("LOOPBACK FAILED");
+            System.exit(1);
+        }
+        System.out.println("LOOPBACK ok");
+    }
+}
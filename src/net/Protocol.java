@@ -0,0 +1,57 @@
+package net;
+
+import entity.Entity;
+import main.KeyHandler;
+
+public class Protocol {
+    //every message on the wire is [int length][byte type][payload]
+    //length counts the type byte and the payload
+    public static final int DEFAULT_PORT = 7777;
+    public static final int MAX_CLIENTS = 1024;
+    public static final int MAX_MESSAGE = 64 * 1024;
+
+    public static final byte MSG_WELCOME = 1; //server -> client : int slot
+    public static final byte MSG_INPUT = 2;   //client -> server : int seq, byte keys
+    public static final byte MSG_STATE = 3;   //server -> client : see GameServer.writeState
+
+    //length field of an input message, type byte + int seq + byte keys
+    public static final int INPUT_LENGTH = 6;
+
+    //input bits, these are the same four keys the KeyHandler tracks
+    public static final int KEY_UP = 1;
+    public static final int KEY_DOWN = 2;
+    public static final int KEY_LEFT = 4;
+    public static final int KEY_RIGHT = 8;
+
+    //flags for each entity entry inside a state message
+    public static final int ENTITY_FULL = 1;    //entity just came into view, absolute int x,y + anim byte follow
+    public static final int ENTITY_MOVED = 2;   //short dx,dy from the last position we sent
+    public static final int ENTITY_ANIM = 4;    //direction/sprite byte changed
+    public static final int ENTITY_REMOVED = 8; //left the view area or disconnected
+
+    public static int keysOf(KeyHandler keyH) {
+        int keys = 0;
+        if (keyH.upPressed) keys |= KEY_UP;
+        if (keyH.downPressed) keys |= KEY_DOWN;
+        if (keyH.leftPressed) keys |= KEY_LEFT;
+        if (keyH.rightPressed) keys |= KEY_RIGHT;
+        return keys;
+    }
+
+    public static void applyKeys(KeyHandler keyH, int keys) {
+        keyH.upPressed = (keys & KEY_UP) != 0;
+        keyH.downPressed = (keys & KEY_DOWN) != 0;
+        keyH.leftPressed = (keys & KEY_LEFT) != 0;
+        keyH.rightPressed = (keys & KEY_RIGHT) != 0;
+    }
+
+    //direction and sprite number packed into one byte, direction in the high bits
+    public static int animOf(Entity e) {
+        return (e.direction << 4) | (e.spriteNum & 0x0f);
+    }
+
+    public static void applyAnim(Entity e, int anim) {
+        e.direction = anim >> 4;
+        e.spriteNum = anim & 0x0f;
+    }
+}
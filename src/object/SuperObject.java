@@ -28,7 +28,7 @@ public class SuperObject {
                 worldY + gp.tileSize > gp.player.worldY - gp.player.screenY &&
                 worldY - gp.tileSize < gp.player.worldY + gp.player.screenY )
         {
-            g2.drawImage(image, screenX, screenY, gp.tileSize, gp.tileSize, null);
+            g2.drawImage(image, gp.toScreen(screenX), gp.toScreen(screenY), gp.drawTileSize, gp.drawTileSize, null);
         }
     }
 }
@@ -0,0 +1,15 @@
+package tile;
+
+import java.awt.*;
+import java.awt.image.BufferedImage;
+
+//one cached 8x8 tile chunk, the graphics stays with the image so rebuilding it doesnt make a new one every time
+public class Chunk {
+    public BufferedImage image;
+    public Graphics2D g2;
+
+    public Chunk(int size) {
+        image = new BufferedImage(size, size, BufferedImage.TYPE_INT_ARGB);
+        g2 = image.createGraphics();
+    }
+}
@@ -0,0 +1,144 @@
+package tile;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.file.*;
+import java.util.Arrays;
+import java.util.LinkedHashSet;
+import java.util.concurrent.TimeUnit;
+
+//watches res/maps and res/tiles on a background thread
+//everything slow (reading files, decoding images, diffing maps) happens here,
+//the game thread only gets a small TileReload to apply between ticks
+class ResourceWatcher implements Runnable {
+    final TileManager tileM;
+    final Path root;
+    final WatchService watchService;
+
+    //what we last handed to the game, new versions of the map are diffed against this
+    int[][] loaded;
+    String loadedMap;
+
+    ResourceWatcher(TileManager tileM, Path root) throws IOException {
+        this.tileM = tileM;
+        this.root = root;
+        watchService = root.getFileSystem().newWatchService();
+        root.resolve("maps").register(watchService, StandardWatchEventKinds.ENTRY_CREATE, StandardWatchEventKinds.ENTRY_MODIFY);
+        root.resolve("tiles").register(watchService, StandardWatchEventKinds.ENTRY_CREATE, StandardWatchEventKinds.ENTRY_MODIFY);
+    }
+
+    public void run() {
+        try {
+            while (true) {
+                LinkedHashSet<String> changed = new LinkedHashSet<>();
+                collect(watchService.take(), changed);
+                //editors usually write a file in a few steps, wait until it settles
+                WatchKey more;
+                while ((more = watchService.poll(150, TimeUnit.MILLISECONDS)) != null) {
+                    collect(more, changed);
+                }
+                for (String file : changed) {
+                    try {
+                        if (file.startsWith("maps/")) {
+                            reloadMap(file);
+                        } else if (file.startsWith("tiles/")) {
+                            reloadTile(file);
+                        }
+                    } catch (Exception e) {
+                        //a half saved file (readMap throws on missing rows or short lines) shouldnt kill the watcher, the next save will fix it
+                        System.out.println("couldnt reload " + file + ": " + e);
+                    }
+                }
+            }
+        } catch (InterruptedException | ClosedWatchServiceException e) {
+            //shutting down
+        }
+    }
+
+    void collect(WatchKey key, LinkedHashSet<String> changed) {
+        Path dir = (Path) key.watchable();
+        for (WatchEvent<?> event : key.pollEvents()) {
+            if (event.kind() == StandardWatchEventKinds.OVERFLOW) {
+                continue;
+            }
+            changed.add(dir.getFileName() + "/" + event.context());
+        }
+        key.reset();
+    }
+
+    void reloadMap(String file) throws IOException {
+        if (!file.equals(tileM.currentMap)) {
+            //only the map that is being played matters
+            return;
+        }
+        int cols = tileM.gp.maxWorldCol;
+        int rows = tileM.gp.maxWorldRow;
+        if (loaded == null || !file.equals(loadedMap) || loaded.length != cols || loaded[0].length != rows) {
+            //first reload of this map, start from what the game has right now
+            synchronized (tileM) {
+                loaded = new int[cols][];
+                for (int c = 0; c < cols; c++) {
+                    loaded[c] = tileM.mapTileNum[c].clone();
+                }
+            }
+            loadedMap = file;
+        }
+
+        int[][] map = new int[cols][rows];
+        try (BufferedReader br = Files.newBufferedReader(root.resolve(file))) {
+            tileM.readMap(br, map);
+        }
+
+        TileReload reload = new TileReload();
+        reload.mapFile = file;
+        reload.cols = new int[16];
+        reload.rows = new int[16];
+        reload.nums = new int[16];
+        for (int c = 0; c < cols; c++) {
+            for (int r = 0; r < rows; r++) {
+                int num = map[c][r];
+                if (num == loaded[c][r]) {
+                    continue;
+                }
+                if (num < 0 || num >= tileM.tile.length || tileM.tile[num] == null) {
+                    throw new IOException("unknown tile " + num + " at " + c + "," + r);
+                }
+                if (reload.count == reload.cols.length) {
+                    reload.cols = Arrays.copyOf(reload.cols, reload.count * 2);
+                    reload.rows = Arrays.copyOf(reload.rows, reload.count * 2);
+                    reload.nums = Arrays.copyOf(reload.nums, reload.count * 2);
+                }
+                reload.cols[reload.count] = c;
+                reload.rows[reload.count] = r;
+                reload.nums[reload.count] = num;
+                reload.count++;
+            }
+        }
+        if (reload.count == 0) {
+            return;
+        }
+        loaded = map;
+        tileM.queueReload(reload);
+    }
+
+    void reloadTile(String file) throws IOException {
+        if (!file.endsWith(".png")) {
+            return;
+        }
+        String name = file.substring("tiles/".length(), file.length() - ".png".length());
+        for (int i = 0; i < tileM.tileImageName.length; i++) {
+            if (name.equals(tileM.tileImageName[i])) {
+                BufferedImage image = ImageIO.read(root.resolve(file).toFile());
+                if (image == null) {
+                    throw new IOException("not an image");
+                }
+                TileReload reload = new TileReload();
+                reload.tileIndex = i;
+                reload.image = image;
+                tileM.queueReload(reload);
+            }
+        }
+    }
+}
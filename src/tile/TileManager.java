@@ -8,74 +8,302 @@ import java.io.BufferedReader;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
-import java.lang.reflect.GenericArrayType;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentLinkedQueue;
 
 public class TileManager{
     Gamepanel gp;
     public Tile[] tile;
+    public String[] tileImageName;
     public int[][] mapTileNum;
+    public String currentMap;
+
+    //the world is drawn in chunks of 8x8 tiles, each chunk is rendered once into an image and reused
+    //only chunks near the screen are kept, the images go back into a pool when they scroll away
+    public static final int CHUNK_SIZE = 8;
+    int chunkCols, chunkRows;
+    int chunkTileSize; //tile size the cached chunks were drawn at
+    Chunk[][] chunkImage;
+    boolean[][] chunkDirty;
+    int[] liveChunkCol = new int[64];
+    int[] liveChunkRow = new int[64];
+    int liveChunks = 0;
+    ArrayDeque<Chunk> chunkPool = new ArrayDeque<>();
+    //rebuilding a chunk is 64 tile draws, so only do a couple per frame and draw the rest tile by tile
+    public int maxChunkRebuildsPerFrame = 2;
+
+    //changes from the file watcher wait here until the game thread applies them between ticks
+    final ConcurrentLinkedQueue<TileReload> pendingReloads = new ConcurrentLinkedQueue<>();
+    ResourceWatcher watcher;
+
     public TileManager(Gamepanel gp){
         this.gp = gp;
         tile = new Tile[10];
-        mapTileNum = new int[gp.maxWorldRow][gp.maxWorldCol];
+        tileImageName = new String[10];
+        mapTileNum = new int[gp.maxWorldCol][gp.maxWorldRow];
         getTileImage();
         loadMap("maps/map04.txt");
     }
 
     public void getTileImage() {
-        try {
-            tile[0] = new Tile();
-            tile[0].image = ImageIO.read(getClass().getClassLoader().getResourceAsStream("tiles/grass.png"));
-
-            tile[1] = new Tile();
-            tile[1].image = ImageIO.read(getClass().getClassLoader().getResourceAsStream("tiles/wall.png"));
-            tile[1].collision = true;
-
-            tile[2] = new Tile();
-            tile[2].image = ImageIO.read(getClass().getClassLoader().getResourceAsStream("tiles/water.png"));
-            tile[2].collision = true;
-
-            tile[3] = new Tile();
-            tile[3].image = ImageIO.read(getClass().getClassLoader().getResourceAsStream("tiles/earth.png"));
-
-            tile[4] = new Tile();
-            tile[4].image = ImageIO.read(getClass().getClassLoader().getResourceAsStream("tiles/tree.png"));
-            tile[4].collision = true;
-
-            tile[5] = new Tile();
-            tile[5].image = ImageIO.read(getClass().getClassLoader().getResourceAsStream("tiles/sand.png"));
+        setup(0, "grass", false);
+        setup(1, "wall", true);
+        setup(2, "water", true);
+        setup(3, "earth", false);
+        setup(4, "tree", true);
+        setup(5, "sand", false);
+    }
 
+    public void setup(int index, String imageName, boolean collision) {
+        try {
+            tile[index] = new Tile();
+            tile[index].image = ImageIO.read(getClass().getClassLoader().getResourceAsStream("tiles/" + imageName + ".png"));
+            tile[index].collision = collision;
+            tileImageName[index] = imageName;
         }catch (IOException e) {
         e.printStackTrace();
     }
     }
 
     public void loadMap(String mapFile) {
+        loadMap(mapFile, false);
+    }
+
+    void loadMap(String mapFile, boolean lenient) {
         try {
             InputStream is = getClass().getClassLoader().getResourceAsStream(mapFile);
             BufferedReader br = new BufferedReader(new InputStreamReader(is));
-            int col = 0;
-            int row = 0;
-            while (col < gp.maxWorldCol && row < gp.maxWorldCol) {
+            readMap(br, mapTileNum, lenient);
+            br.close();
+        }catch (Exception e) {
+            e.printStackTrace();
+        }
+        currentMap = mapFile;
+        resetChunks();
+    }
+
+    //map04 is 74x74 but the other maps and generated worlds can be any size
+    public void setWorldSize(int cols, int rows) {
+        synchronized (this) {
+            gp.maxWorldCol = cols;
+            gp.maxWorldRow = rows;
+            gp.worldWidth = gp.tileSize * cols;
+            gp.worldHeight = gp.tileSize * rows;
+            mapTileNum = new int[cols][rows];
+            resetChunks();
+        }
+    }
+
+    //reads a map text file into the given grid, used for loading and for hot reloading
+    //every row has to be there with at least one number per column (extra numbers are ignored),
+    //otherwise it throws, so a half saved file never gets swapped in as a map full of grass
+    public void readMap(BufferedReader br, int[][] map) throws IOException {
+        readMap(br, map, false);
+    }
+
+    //lenient: missing rows and the end of short lines are left as grass, some of the old map files have a broken line or two
+    void readMap(BufferedReader br, int[][] map, boolean lenient) throws IOException {
+            int cols = map.length;
+            int rows = cols == 0 ? 0 : map[0].length;
+            for (int row = 0; row < rows; row++) {
                 String line = br.readLine();
                 //readline reads a line of text
+                if (line == null) {
+                    if (lenient) {
+                        break;
+                    }
+                    throw new IOException("map ends after " + row + " of " + rows + " rows");
+                }
 
-                while (col < gp.maxWorldCol) {
-                    String numbers[] = line.split(" ");
-                    int num = Integer.parseInt(numbers[col]);
-                    mapTileNum[col][row] = num;
-                    col++;
+                String numbers[] = line.trim().split(" +");
+                if (numbers.length < cols && !lenient) {
+                    throw new IOException("row " + row + " has " + numbers.length + " of " + cols + " tiles");
                 }
-                if(col == gp.maxWorldCol){
-                    col = 0;
-                    row++;
+                for (int col = 0; col < cols; col++) {
+                    map[col][row] = col < numbers.length ? Integer.parseInt(numbers[col]) : 0;
                 }
             }
+    }
+
+    //loads a map file whatever size it is, the world is resized to fit it first
+    //the width is the most common line length so a single broken line doesnt stretch the whole map
+    public void loadMapAnySize(String mapFile) {
+        int rows = 0;
+        HashMap<Integer, Integer> widths = new HashMap<>();
+        try {
+            InputStream is = getClass().getClassLoader().getResourceAsStream(mapFile);
+            BufferedReader br = new BufferedReader(new InputStreamReader(is));
+            String line;
+            while ((line = br.readLine()) != null && !line.isBlank()) {
+                widths.merge(line.trim().split(" +").length, 1, Integer::sum);
+                rows++;
+            }
             br.close();
-        }catch (Exception e) {
+        } catch (Exception e) {
             e.printStackTrace();
+            return;
+        }
+        int cols = 0;
+        for (Map.Entry<Integer, Integer> w : widths.entrySet()) {
+            if (cols == 0 || w.getValue() > widths.get(cols)) {
+                cols = w.getKey();
+            }
+        }
+        setWorldSize(cols, rows);
+        loadMap(mapFile, true);
+    }
+
+    //starts watching res/maps and res/tiles, changed files get reloaded without restarting
+    //the res folder can be moved with -Dtiletraveler.res=path
+    public void startWatching() {
+        Path root = Path.of(System.getProperty("tiletraveler.res", "res"));
+        try {
+            watcher = new ResourceWatcher(this, root);
+            Thread t = new Thread(watcher, "resource-watcher");
+            t.setDaemon(true);
+            t.start();
+        } catch (IOException e) {
+            System.out.println("hot reload disabled, cant watch " + root.toAbsolutePath() + ": " + e);
+        }
+    }
+
+    void queueReload(TileReload reload) {
+        pendingReloads.add(reload);
+    }
+
+    //called by the game loop before update, so a reload is never half applied during a tick
+    //the lock keeps draw() from seeing half of it either
+    public void applyReloads() {
+        if (pendingReloads.isEmpty()) {
+            return;
+        }
+        synchronized (this) {
+            TileReload reload;
+            while ((reload = pendingReloads.poll()) != null) {
+                if (reload.tileIndex >= 0) {
+                    //new image for a tile type, collision stays the same
+                    tile[reload.tileIndex].image = reload.image;
+                    invalidateChunksWith(reload.tileIndex);
+                    System.out.println("reloaded tile " + tileImageName[reload.tileIndex]);
+                } else if (reload.mapFile.equals(currentMap)) {
+                    //collision checks read mapTileNum directly so changing the cell is all they need
+                    for (int i = 0; i < reload.count; i++) {
+                        mapTileNum[reload.cols[i]][reload.rows[i]] = reload.nums[i];
+                        invalidateChunkAt(reload.cols[i], reload.rows[i]);
+                    }
+                    System.out.println("reloaded " + reload.mapFile + ", " + reload.count + " tiles changed");
+                }
+            }
+        }
+    }
+
+    //throws away every cached chunk, needed whenever the whole map changes
+    public void resetChunks() {
+        synchronized (this) {
+            while (liveChunks > 0) {
+                releaseChunk(0);
+            }
+            chunkCols = (gp.maxWorldCol + CHUNK_SIZE - 1) / CHUNK_SIZE;
+            chunkRows = (gp.maxWorldRow + CHUNK_SIZE - 1) / CHUNK_SIZE;
+            chunkImage = new Chunk[chunkCols][chunkRows];
+            chunkDirty = new boolean[chunkCols][chunkRows];
+        }
+    }
+
+    //makes every chunk image up front so walking around never creates one
+    //done on the first draw and not in the constructor, servers and headless clients never draw
+    //n tiles starting anywhere inside a chunk touch at most (n + 6) / 8 + 1 chunks, and one more is kept cached on every side
+    void fillChunkPool() {
+        for (Chunk chunk : chunkPool) {
+            chunk.g2.dispose();
+        }
+        chunkPool.clear();
+        chunkTileSize = gp.drawTileSize;
+        int cols = (gp.maxScreenCol + CHUNK_SIZE - 2) / CHUNK_SIZE + 1 + 2;
+        int rows = (gp.maxScreenRow + CHUNK_SIZE - 2) / CHUNK_SIZE + 1 + 2;
+        for (int i = 0; i < cols * rows; i++) {
+            chunkPool.push(new Chunk(CHUNK_SIZE * chunkTileSize));
+        }
+    }
+
+    void invalidateChunkAt(int col, int row) {
+        chunkDirty[col / CHUNK_SIZE][row / CHUNK_SIZE] = true;
+    }
+
+    //chunks that arent cached will pick up the new image when they are built anyway
+    void invalidateChunksWith(int tileIndex) {
+        for (int i = 0; i < liveChunks; i++) {
+            int cc = liveChunkCol[i];
+            int cr = liveChunkRow[i];
+            if (chunkDirty[cc][cr]) {
+                continue;
+            }
+            for (int col = cc * CHUNK_SIZE; col < Math.min((cc + 1) * CHUNK_SIZE, gp.maxWorldCol) && !chunkDirty[cc][cr]; col++) {
+                for (int row = cr * CHUNK_SIZE; row < Math.min((cr + 1) * CHUNK_SIZE, gp.maxWorldRow); row++) {
+                    if (mapTileNum[col][row] == tileIndex) {
+                        chunkDirty[cc][cr] = true;
+                        break;
+                    }
+                }
+            }
         }
     }
+
+    Chunk buildChunk(int cc, int cr) {
+        Chunk chunk = chunkImage[cc][cr];
+        if (chunk == null) {
+            chunk = chunkPool.poll();
+            if (chunk == null) {
+                //only if the screen got bigger than the pool was made for
+                chunk = new Chunk(CHUNK_SIZE * chunkTileSize);
+            }
+            chunkImage[cc][cr] = chunk;
+            if (liveChunks == liveChunkCol.length) {
+                liveChunkCol = Arrays.copyOf(liveChunkCol, liveChunks * 2);
+                liveChunkRow = Arrays.copyOf(liveChunkRow, liveChunks * 2);
+            }
+            liveChunkCol[liveChunks] = cc;
+            liveChunkRow[liveChunks] = cr;
+            liveChunks++;
+        }
+        //clear the flag first, if a reload marks it again while we draw it just gets rebuilt next frame
+        chunkDirty[cc][cr] = false;
+
+        Graphics2D cg = chunk.g2;
+        cg.setComposite(AlphaComposite.Clear);
+        cg.fillRect(0, 0, chunk.image.getWidth(), chunk.image.getHeight());
+        cg.setComposite(AlphaComposite.SrcOver);
+        drawChunkTiles(cg, cc, cr, cc * CHUNK_SIZE * gp.tileSize, cr * CHUNK_SIZE * gp.tileSize);
+        return chunk;
+    }
+
+    //draws the tiles of one chunk straight onto g2, camLeft/camTop is the world position of the top left pixel
+    //world positions go through gp.toScreen so this works for 48px and 16px drawing
+    void drawChunkTiles(Graphics g2, int cc, int cr, int camLeft, int camTop) {
+        int lastCol = Math.min((cc + 1) * CHUNK_SIZE, gp.maxWorldCol);
+        int lastRow = Math.min((cr + 1) * CHUNK_SIZE, gp.maxWorldRow);
+        for (int col = cc * CHUNK_SIZE; col < lastCol; col++) {
+            for (int row = cr * CHUNK_SIZE; row < lastRow; row++) {
+                int tileNum = mapTileNum[col][row];
+                g2.drawImage(tile[tileNum].image, gp.toScreen(col * gp.tileSize - camLeft), gp.toScreen(row * gp.tileSize - camTop), gp.drawTileSize, gp.drawTileSize, null);
+            }
+        }
+    }
+
+    void releaseChunk(int i) {
+        int cc = liveChunkCol[i];
+        int cr = liveChunkRow[i];
+        chunkPool.push(chunkImage[cc][cr]);
+        chunkImage[cc][cr] = null;
+        liveChunks--;
+        liveChunkCol[i] = liveChunkCol[liveChunks];
+        liveChunkRow[i] = liveChunkRow[liveChunks];
+    }
+
     public void draw(Graphics g2) {
 //        g2.drawImage(tile[1].image,0,0,gp.tileSize,gp.tileSize,null);
 //        g2.drawImage(tile[1].image,48,0,gp.tileSize,gp.tileSize,null);
@@ -106,39 +334,47 @@ public class TileManager{
 //        g2.drawImage(tile[2].image,96,192,gp.tileSize,gp.tileSize,null);
 //        g2.drawImage(tile[2].image,144,192,gp.tileSize,gp.tileSize,null);
 //        g2.drawImage(tile[0].image,192,192,gp.tileSize,gp.tileSize,null);
-            int WorldCol = 0;
-            int WorldRow = 0;
-//            int x = 0;
-//            int y = 0;
-            while (WorldCol < gp.maxWorldCol && WorldRow < gp.maxWorldRow) {
-
-                int tileNum = mapTileNum[WorldCol][WorldRow];
-
-                int worldX = WorldCol * gp.tileSize;
-                int worldY = WorldRow * gp.tileSize;
-
-                int screenX = worldX - gp.player.worldX + gp.player.screenX;
-                int screenY = worldY - gp.player.worldY + gp.player.screenY;
-
-                if(worldX + gp.tileSize > gp.player.worldX - gp.player.screenX &&
-                   worldX - gp.tileSize < gp.player.worldX + gp.player.screenX &&
-                   worldY + gp.tileSize > gp.player.worldY - gp.player.screenY &&
-                   worldY - gp.tileSize < gp.player.worldY + gp.player.screenY )
-                {
-                    g2.drawImage(tile[tileNum].image, screenX, screenY, gp.tileSize, gp.tileSize, null);
-                }
+        synchronized (this) {
+            if (chunkTileSize != gp.drawTileSize) {
+                //first frame, or switched between native and 48px drawing, the cached chunks and the pool are the wrong size
+                resetChunks();
+                fillChunkPool();
+            }
+            //world position of the top left pixel on screen
+            int camLeft = gp.player.worldX - gp.player.screenX;
+            int camTop = gp.player.worldY - gp.player.screenY;
+            int chunkPixels = CHUNK_SIZE * gp.tileSize;
 
-                WorldCol++;
-//                x += gp.tileSize;
-                if (WorldCol == gp.maxWorldCol) {
-                    WorldCol = 0;
-                    WorldRow++;
-//                    x = 0;
-//                    y += gp.tileSize;
-                }
-                //16 0s and 12 lines
+            int firstChunkCol = Math.max(0, Math.floorDiv(camLeft, chunkPixels));
+            int lastChunkCol = Math.min(chunkCols - 1, Math.floorDiv(camLeft + gp.screenWidth - 1, chunkPixels));
+            int firstChunkRow = Math.max(0, Math.floorDiv(camTop, chunkPixels));
+            int lastChunkRow = Math.min(chunkRows - 1, Math.floorDiv(camTop + gp.screenHeight - 1, chunkPixels));
 
+            //keep one chunk around the screen cached so walking back and forth doesnt rebuild
+            //done before drawing so the chunks that scrolled away are back in the pool when new ones are needed
+            for (int i = liveChunks - 1; i >= 0; i--) {
+                if (liveChunkCol[i] < firstChunkCol - 1 || liveChunkCol[i] > lastChunkCol + 1
+                        || liveChunkRow[i] < firstChunkRow - 1 || liveChunkRow[i] > lastChunkRow + 1) {
+                    releaseChunk(i);
+                }
             }
 
+            int rebuilds = 0;
+            for (int cc = firstChunkCol; cc <= lastChunkCol; cc++) {
+                for (int cr = firstChunkRow; cr <= lastChunkRow; cr++) {
+                    Chunk chunk = chunkImage[cc][cr];
+                    if (chunk == null || chunkDirty[cc][cr]) {
+                        if (rebuilds == maxChunkRebuildsPerFrame) {
+                            //out of budget this frame, same pixels just slower
+                            drawChunkTiles(g2, cc, cr, camLeft, camTop);
+                            continue;
+                        }
+                        chunk = buildChunk(cc, cr);
+                        rebuilds++;
+                    }
+                    g2.drawImage(chunk.image, gp.toScreen(cc * chunkPixels - camLeft), gp.toScreen(cr * chunkPixels - camTop), null);
+                }
+            }
+        }
     }
 }
@@ -0,0 +1,15 @@
+package tile;
+
+import java.awt.image.BufferedImage;
+
+//one change found by the ResourceWatcher, either a new tile image or the tiles that changed in a map
+public class TileReload {
+    //tile image change
+    public int tileIndex = -1;
+    public BufferedImage image;
+
+    //map change, only the cells that are different from what is loaded
+    public String mapFile;
+    public int count;
+    public int[] cols, rows, nums;
+}
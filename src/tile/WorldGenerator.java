@@ -0,0 +1,226 @@
+package tile;
+
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+//procedural worlds instead of the map text files
+//every tile is worked out only from (seed, col, row), so the world comes out the same
+//no matter how the fork-join pool splits the work or how many threads it has
+public class WorldGenerator {
+    //tile numbers, same as TileManager.getTileImage
+    static final int GRASS = 0, WATER = 2, EARTH = 3, TREE = 4, SAND = 5;
+
+    //strips narrower than this are generated on one thread
+    static final int STRIP_WIDTH = 64;
+
+    final TileManager tileM;
+
+    //where things ended up, in tiles
+    public int spawnCol, spawnRow;
+    public int keyCol, keyRow;
+    public int chestCol, chestRow;
+    public int doorCol, doorRow;
+
+    int size;
+    int[][] map;
+
+    //one screen, smaller than this there is no room to place the key, chest and door away from the edges
+    public static final int MIN_SIZE = 16;
+
+    //noise octaves: elevation x3, river x2, forest x2
+    //periods are powers of two (1 << shift) so finding the lattice cell is a shift
+    static final int[] SHIFTS = {5, 4, 3, 6, 5, 4, 3};
+    static final float[] WEIGHTS = {0.5f, 0.3f, 0.2f, 0.7f, 0.3f, 0.6f, 0.4f};
+    static final int ELEVATION = 0, RIVER = 3, FOREST = 5;
+
+    //random values at every period-th tile, filled in before the parallel part
+    float[][][] lattices;
+    //smoothstep for every position inside a lattice cell
+    float[][] smooth;
+
+    public WorldGenerator(TileManager tileM) {
+        this.tileM = tileM;
+    }
+
+    public void generate(long seed, int size) {
+        generate(seed, size, ForkJoinPool.commonPool());
+    }
+
+    public void generate(long seed, int size, ForkJoinPool pool) {
+        if (size < MIN_SIZE) {
+            throw new IllegalArgumentException("world size has to be at least " + MIN_SIZE + ", got " + size);
+        }
+        long start = System.nanoTime();
+        this.size = size;
+        tileM.setWorldSize(size, size);
+        map = tileM.mapTileNum;
+
+        lattices = new float[SHIFTS.length][][];
+        smooth = new float[SHIFTS.length][];
+        for (int o = 0; o < SHIFTS.length; o++) {
+            lattices[o] = lattice(seed, o, SHIFTS[o]);
+            int period = 1 << SHIFTS[o];
+            smooth[o] = new float[period];
+            for (int i = 0; i < period; i++) {
+                float f = i / (float) period;
+                smooth[o][i] = f * f * (3 - 2 * f);
+            }
+        }
+
+        //terrain, in parallel over column strips (mapTileNum is [col][row] so each strip owns its arrays)
+        pool.invoke(new TerrainTask(0, size));
+
+        //placements and paths are sequential and cheap, they use their own seeded random
+        Random random = new Random(seed);
+        spawnCol = size / 2;
+        spawnRow = size / 2;
+        clear(spawnCol - 1, spawnRow - 1, 3, 3);
+
+        keyCol = pick(random);
+        keyRow = pick(random);
+        chestCol = pick(random);
+        chestRow = pick(random);
+        doorCol = pick(random);
+        doorRow = pick(random);
+
+        //carving a path from the spawn to each of them is what guarantees you can reach them
+        carvePath(spawnCol, spawnRow, keyCol, keyRow);
+        carvePath(spawnCol, spawnRow, chestCol, chestRow);
+        carvePath(spawnCol, spawnRow, doorCol, doorRow);
+
+        tileM.currentMap = "generated:" + seed;
+        tileM.resetChunks();
+        System.out.println("generated " + size + "x" + size + " world (seed " + seed + ") in "
+                + (System.nanoTime() - start) / 1000000 + "ms");
+    }
+
+    class TerrainTask extends RecursiveAction {
+        final int fromCol, toCol;
+
+        TerrainTask(int fromCol, int toCol) {
+            this.fromCol = fromCol;
+            this.toCol = toCol;
+        }
+
+        protected void compute() {
+            if (toCol - fromCol <= STRIP_WIDTH) {
+                //noise already blended along x for the current column, one value per lattice row
+                float[][] columnNoise = new float[SHIFTS.length][];
+                for (int o = 0; o < SHIFTS.length; o++) {
+                    columnNoise[o] = new float[(size >> SHIFTS[o]) + 2];
+                }
+                for (int col = fromCol; col < toCol; col++) {
+                    for (int o = 0; o < SHIFTS.length; o++) {
+                        blendColumn(o, col, columnNoise[o]);
+                    }
+                    int[] column = map[col];
+                    for (int row = 0; row < size; row++) {
+                        column[row] = terrainAt(col, row, columnNoise);
+                    }
+                }
+                return;
+            }
+            int mid = (fromCol + toCol) >>> 1;
+            invokeAll(new TerrainTask(fromCol, mid), new TerrainTask(mid, toCol));
+        }
+    }
+
+    void blendColumn(int o, int col, float[] out) {
+        float[][] lattice = lattices[o];
+        int ix = col >> SHIFTS[o];
+        float fx = smooth[o][col & ((1 << SHIFTS[o]) - 1)];
+        for (int iy = 0; iy < out.length; iy++) {
+            out[iy] = lattice[ix][iy] + (lattice[ix + 1][iy] - lattice[ix][iy]) * fx;
+        }
+    }
+
+    float noise(float[][] columnNoise, int o, int row) {
+        float[] values = columnNoise[o];
+        int iy = row >> SHIFTS[o];
+        float fy = smooth[o][row & ((1 << SHIFTS[o]) - 1)];
+        return (values[iy] + (values[iy + 1] - values[iy]) * fy) * WEIGHTS[o];
+    }
+
+    int terrainAt(int col, int row, float[][] n) {
+        //a wall of trees all the way around so nobody walks off the map
+        if (col < 2 || row < 2 || col >= size - 2 || row >= size - 2) {
+            return TREE;
+        }
+
+        float elevation = noise(n, ELEVATION, row) + noise(n, ELEVATION + 1, row) + noise(n, ELEVATION + 2, row);
+        if (elevation < 0.3f) {
+            return WATER;
+        }
+        if (elevation < 0.33f) {
+            return SAND;
+        }
+
+        //rivers run along the line where the river noise crosses the middle
+        float river = Math.abs(noise(n, RIVER, row) + noise(n, RIVER + 1, row) - 0.5f);
+        if (river < 0.015f) {
+            return WATER;
+        }
+        if (river < 0.025f) {
+            return SAND;
+        }
+
+        float forest = noise(n, FOREST, row) + noise(n, FOREST + 1, row);
+        if (forest > 0.66f) {
+            return TREE;
+        }
+        if (forest < 0.25f) {
+            return EARTH;
+        }
+        return GRASS;
+    }
+
+    //random values at every period-th tile
+    float[][] lattice(long seed, int octave, int shift) {
+        int points = (size >> shift) + 2;
+        float[][] lattice = new float[points][points];
+        for (int x = 0; x < points; x++) {
+            for (int y = 0; y < points; y++) {
+                lattice[x][y] = (hash(seed, octave, x, y) >>> 40) / (float) (1 << 24);
+            }
+        }
+        return lattice;
+    }
+
+    static long hash(long seed, int octave, int x, int y) {
+        long h = seed * 0x9E3779B97F4A7C15L + octave;
+        h = (h ^ x) * 0xBF58476D1CE4E5B9L;
+        h = (h ^ y) * 0x94D049BB133111EBL;
+        h ^= h >>> 31;
+        h *= 0xBF58476D1CE4E5B9L;
+        return h ^ (h >>> 29);
+    }
+
+    int pick(Random random) {
+        return 4 + random.nextInt(size - 10);
+    }
+
+    //L shaped path, 2 tiles wide because the player's hitbox touches two rows when it walks sideways
+    void carvePath(int fromCol, int fromRow, int toCol, int toRow) {
+        int step = fromCol < toCol ? 1 : -1;
+        for (int col = fromCol; col != toCol; col += step) {
+            clear(col, fromRow, 2, 2);
+        }
+        step = fromRow < toRow ? 1 : -1;
+        for (int row = fromRow; row != toRow; row += step) {
+            clear(toCol, row, 2, 2);
+        }
+        clear(toCol, toRow, 2, 2);
+    }
+
+    //anything blocked in the area becomes earth, walkable tiles are left alone
+    void clear(int col, int row, int width, int height) {
+        for (int c = col; c < col + width; c++) {
+            for (int r = row; r < row + height; r++) {
+                if (tileM.tile[map[c][r]].collision) {
+                    map[c][r] = EARTH;
+                }
+            }
+        }
+    }
+}
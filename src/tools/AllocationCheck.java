@@ -0,0 +1,101 @@
+package tools;
+
+import entity.Player;
+import main.AllocationTracker;
+import main.Gamepanel;
+import main.KeyHandler;
+import net.Protocol;
+
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.util.Random;
+
+//checks that a steady state tick and frame allocate nothing
+//walks the player around map04 with a couple hundred entities in the AreaOfInterest, so chunks keep scrolling in and out,
+//warms up so the jit has compiled everything, then measures every tick and every frame with an AllocationTracker
+//exits with 1 if any measured tick or frame allocated, so it can be used as a test
+//usage: AllocationCheck [warmupTicks] [ticks]
+public class AllocationCheck {
+
+    public static void main(String[] args) {
+        System.setProperty("java.awt.headless", "true");
+        int warmup = args.length > 0 ? Integer.parseInt(args[0]) : 50000;
+        int ticks = args.length > 1 ? Integer.parseInt(args[1]) : 20000;
+
+        if (!AllocationTracker.supported) {
+            System.out.println("ALLOC this jvm cant count allocated bytes per thread");
+            System.exit(1);
+        }
+
+        Gamepanel gp = new Gamepanel();
+        gp.setupGame();
+        Random random = new Random(1);
+
+        //entities all over the map so some are near, some mid and some frozen as the player walks
+        KeyHandler[] npcKeys = new KeyHandler[200];
+        for (int i = 0; i < npcKeys.length; i++) {
+            npcKeys[i] = new KeyHandler();
+            Player npc = new Player(gp, npcKeys[i]);
+            npc.worldX = (2 + random.nextInt(gp.maxWorldCol - 4)) * gp.tileSize;
+            npc.worldY = (2 + random.nextInt(gp.maxWorldRow - 4)) * gp.tileSize;
+            gp.aoi.add(npc);
+        }
+
+        AllocationTracker empty = new AllocationTracker();
+        AllocationTracker update = new AllocationTracker();
+        AllocationTracker render = new AllocationTracker();
+        BufferedImage frame = new BufferedImage(gp.nativeWidth, gp.nativeHeight, BufferedImage.TYPE_INT_RGB);
+        Graphics2D g2 = frame.createGraphics();
+
+        for (int i = 0; i < warmup + ticks; i++) {
+            boolean measure = i >= warmup;
+            if (i == warmup) {
+                empty.reset();
+                update.reset();
+                render.reset();
+            }
+
+            //input changes happen on the key listener thread in the real game, not inside a tick
+            if (i % 30 == 0) {
+                Protocol.applyKeys(gp.keyH, 1 << random.nextInt(5));
+                for (KeyHandler k : npcKeys) {
+                    Protocol.applyKeys(k, 1 << random.nextInt(5));
+                }
+            }
+            if (i % 2000 == 0) {
+                //jump somewhere else now and then so entities keep moving between tiers
+                gp.player.worldX = (2 + random.nextInt(gp.maxWorldCol - 4)) * gp.tileSize;
+                gp.player.worldY = (2 + random.nextInt(gp.maxWorldRow - 4)) * gp.tileSize;
+            }
+
+            //the tracker itself should cost nothing, if this isnt 0 the numbers below cant be trusted
+            empty.begin();
+            empty.end();
+
+            update.begin();
+            gp.update();
+            update.end();
+
+            if (i % 4 == 0) {
+                render.begin();
+                gp.drawWorld(g2, 16);
+                render.end();
+            }
+            if (!measure) {
+                empty.reset();
+                update.reset();
+                render.reset();
+            }
+        }
+
+        System.out.println("ALLOC tracker overhead: " + empty);
+        System.out.println("ALLOC update: " + update);
+        System.out.println("ALLOC render: " + render);
+
+        if (empty.allocatingSamples > 0 || update.allocatingSamples > 0 || render.allocatingSamples > 0) {
+            System.out.println("ALLOC FAILED: steady state ticks or frames allocated");
+            System.exit(1);
+        }
+        System.out.println("ALLOC ok: " + update.samples + " ticks and " + render.samples + " frames, 0 bytes");
+    }
+}
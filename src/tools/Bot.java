@@ -0,0 +1,79 @@
+package tools;
+
+import entity.Player;
+import main.Gamepanel;
+import main.KeyHandler;
+
+import java.awt.*;
+import java.awt.event.KeyEvent;
+import java.util.Random;
+
+//a scripted player for the soak test
+//it presses and releases WASD through its own KeyHandler exactly like the keyboard would
+//the script runs on its own (virtual) thread and the game loop only calls player.update(), same as the real game
+public class Bot implements Runnable {
+    static final int[] KEYS = {KeyEvent.VK_W, KeyEvent.VK_A, KeyEvent.VK_S, KeyEvent.VK_D};
+    static final char[] CHARS = {'w', 'a', 's', 'd'};
+
+    //key events need a source component, it is never shown
+    static final Component source = new Canvas();
+
+    public final KeyHandler keyH = new KeyHandler();
+    public final Player player;
+    final Random random;
+    volatile boolean running = true;
+
+    public long keyEvents = 0;
+
+    public Bot(Gamepanel gp, long seed) {
+        random = new Random(seed);
+        player = new Player(gp, keyH);
+        placeOnWalkableTile(gp);
+    }
+
+    //spawn somewhere random that isnt inside a wall, tree or water
+    void placeOnWalkableTile(Gamepanel gp) {
+        for (int tries = 0; tries < 1000; tries++) {
+            int col = 1 + random.nextInt(gp.maxWorldCol - 2);
+            int row = 1 + random.nextInt(gp.maxWorldRow - 3);
+            if (!gp.tileM.tile[gp.tileM.mapTileNum[col][row]].collision
+                    && !gp.tileM.tile[gp.tileM.mapTileNum[col][row + 1]].collision) {
+                player.worldX = col * gp.tileSize;
+                player.worldY = row * gp.tileSize;
+                return;
+            }
+        }
+    }
+
+    public void run() {
+        try {
+            while (running) {
+                //idle for a bit now and then, otherwise hold one key for a while
+                if (random.nextInt(5) == 0) {
+                    Thread.sleep(200 + random.nextInt(1000));
+                    continue;
+                }
+                int k = random.nextInt(KEYS.length);
+                press(k);
+                Thread.sleep(150 + random.nextInt(1500));
+                release(k);
+            }
+        } catch (InterruptedException e) {
+            //soak test is over
+        }
+    }
+
+    void press(int k) {
+        keyH.keyPressed(new KeyEvent(source, KeyEvent.KEY_PRESSED, System.currentTimeMillis(), 0, KEYS[k], CHARS[k]));
+        keyEvents++;
+    }
+
+    void release(int k) {
+        keyH.keyReleased(new KeyEvent(source, KeyEvent.KEY_RELEASED, System.currentTimeMillis(), 0, KEYS[k], CHARS[k]));
+        keyEvents++;
+    }
+
+    public void stop() {
+        running = false;
+    }
+}
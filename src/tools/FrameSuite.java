@@ -0,0 +1,259 @@
+package tools;
+
+import entity.Entity;
+import main.Gamepanel;
+import object.SuperObject;
+
+import javax.imageio.ImageIO;
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Properties;
+import java.util.TreeMap;
+
+//render regression + perf suite
+//puts the camera at a few scripted spots on map01-map04 and draws each one off screen through
+//the same drawWorld the game uses (TileManager.draw, SuperObject.draw, Player.draw), once at 16px native and once at 48px
+//every frame is compared pixel by pixel with a golden png and its median render time with a committed budget
+//exits with 1 if any frame looks different or is over budget, so it can be used as a test
+//usage: FrameSuite [--update] [--no-budget] [--frames N]
+//--update writes new golden images and budgets from this run, only do that when the change in output is wanted
+//--no-budget only checks the pixels, for slow or busy machines
+//the golden folder can be moved with -Dtiletraveler.golden=path
+public class FrameSuite {
+    static final String[] MAPS = {"map01", "map02", "map03", "map04"};
+    static final String[] SHOTS = {"origin", "center", "key", "far"};
+    static final int WARMUP_FRAMES = 50;
+
+    Gamepanel gp;
+    Path goldenDir;
+    Path failedDir;
+    Properties budget = new Properties();
+    TreeMap<String, String> newBudget = new TreeMap<>(); //sorted so the file diffs nicely
+    boolean update = false;
+    boolean checkBudget = true;
+    int frames = 300;
+    int failures = 0;
+    int imageFailures = 0;
+
+    public static void main(String[] args) throws IOException {
+        System.setProperty("java.awt.headless", "true");
+        FrameSuite suite = new FrameSuite();
+        for (int i = 0; i < args.length; i++) {
+            if (args[i].equals("--update")) {
+                suite.update = true;
+            } else if (args[i].equals("--no-budget")) {
+                suite.checkBudget = false;
+            } else if (args[i].equals("--frames")) {
+                suite.frames = Integer.parseInt(args[++i]);
+            }
+        }
+        System.exit(suite.run() ? 0 : 1);
+    }
+
+    boolean run() throws IOException {
+        goldenDir = Path.of(System.getProperty("tiletraveler.golden", "golden"));
+        failedDir = Path.of(System.getProperty("java.io.tmpdir"), "frame-suite");
+        Path budgetFile = goldenDir.resolve("budget.properties");
+        if (update) {
+            Files.createDirectories(goldenDir);
+        } else {
+            if (!Files.exists(budgetFile)) {
+                System.out.println("FRAME no golden frames in " + goldenDir.toAbsolutePath() + ", run with --update first");
+                return false;
+            }
+            try (Reader r = Files.newBufferedReader(budgetFile)) {
+                budget.load(r);
+            }
+        }
+
+        gp = new Gamepanel();
+        for (String map : MAPS) {
+            gp.tileM.loadMapAnySize("maps/" + map + ".txt");
+            //same objects as the game on every map, pulled inside the map on the smaller ones
+            //so the key shot always has tiles and objects in it
+            Arrays.fill(gp.obj, null);
+            gp.setupGame();
+            for (SuperObject o : gp.obj) {
+                if (o != null) {
+                    o.worldX = Math.min(o.worldX, (gp.maxWorldCol - 2) * gp.tileSize);
+                    o.worldY = Math.min(o.worldY, (gp.maxWorldRow - 2) * gp.tileSize);
+                }
+            }
+            for (int shot = 0; shot < SHOTS.length; shot++) {
+                placeCamera(shot);
+                runFrame(map + "." + SHOTS[shot] + ".native", gp.originalTileSize, gp.nativeWidth, gp.nativeHeight);
+                runFrame(map + "." + SHOTS[shot] + ".direct", gp.tileSize, gp.screenWidth, gp.screenHeight);
+            }
+        }
+
+        if (update) {
+            try (Writer w = Files.newBufferedWriter(budgetFile)) {
+                w.write("#median microseconds per frame allowed, written by FrameSuite --update\n");
+                w.write("#3x what the machine that wrote it measured, so only real slowdowns fail\n");
+                for (String key : newBudget.keySet()) {
+                    w.write(key + "=" + newBudget.get(key) + "\n");
+                }
+            }
+            System.out.println("FRAME updated " + newBudget.size() + " golden frames in " + goldenDir.toAbsolutePath());
+            return true;
+        }
+        if (failures > 0) {
+            System.out.println("FRAME FAILED: " + failures + " problems");
+            if (imageFailures > 0) {
+                System.out.println("FRAME actual and diff images are in " + failedDir.toAbsolutePath());
+            }
+            return false;
+        }
+        System.out.println("FRAME ok: " + newBudget.size() + " frames match");
+        return true;
+    }
+
+    //the player is the camera, each shot also uses a different direction and walking sprite
+    void placeCamera(int shot) {
+        int cols = gp.maxWorldCol;
+        int rows = gp.maxWorldRow;
+        switch (shot) {
+            case 0: //top left corner, half the screen is outside the map
+                gp.player.worldX = 0;
+                gp.player.worldY = 0;
+                break;
+            case 1: //middle, off the tile grid so the 16px rounding gets checked
+                gp.player.worldX = cols / 2 * gp.tileSize + 7;
+                gp.player.worldY = rows / 2 * gp.tileSize + 5;
+                break;
+            case 2: //next to the first key so objects are on screen
+                gp.player.worldX = gp.obj[1].worldX - 2 * gp.tileSize - 11;
+                gp.player.worldY = gp.obj[1].worldY + gp.tileSize + 13;
+                break;
+            default: //bottom right corner
+                gp.player.worldX = (cols - 1) * gp.tileSize;
+                gp.player.worldY = (rows - 1) * gp.tileSize;
+                break;
+        }
+        int[] directions = {Entity.DOWN, Entity.UP, Entity.LEFT, Entity.RIGHT};
+        gp.player.direction = directions[shot % directions.length];
+        gp.player.spriteNum = 1 + shot % 2;
+    }
+
+    void runFrame(String name, int drawTileSize, int width, int height) throws IOException {
+        BufferedImage frame = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        Graphics2D g2 = frame.createGraphics();
+
+        //first frame with nothing cached, most chunks get drawn tile by tile
+        gp.tileM.resetChunks();
+        draw(g2, frame, drawTileSize);
+        BufferedImage cold = copy(frame);
+
+        //then the same frame over and over with the chunk cache warm, like the game does when standing still
+        long[] times = new long[frames];
+        for (int i = 0; i < WARMUP_FRAMES + frames; i++) {
+            long start = System.nanoTime();
+            draw(g2, frame, drawTileSize);
+            long time = System.nanoTime() - start;
+            if (i >= WARMUP_FRAMES) {
+                times[i - WARMUP_FRAMES] = time;
+            }
+        }
+        g2.dispose();
+        Arrays.sort(times);
+        long micros = times.length == 0 ? 0 : times[times.length / 2] / 1000;
+
+        Path goldenFile = goldenDir.resolve(name + ".png");
+        if (update) {
+            ImageIO.write(frame, "png", goldenFile.toFile());
+            newBudget.put(name, String.valueOf(Math.max(100, (micros * 3 + 9) / 10 * 10)));
+            System.out.println("FRAME " + name + " " + micros + "us");
+            return;
+        }
+        newBudget.put(name, String.valueOf(micros));
+
+        if (!Files.exists(goldenFile)) {
+            System.out.println("FRAME " + name + " " + micros + "us no golden image");
+            fail(name, frame, null);
+            return;
+        }
+        BufferedImage golden = ImageIO.read(goldenFile.toFile());
+        //cold and warm have to match, otherwise the chunk cache draws something the tile by tile path doesnt
+        String coldDiff = compare(cold, golden);
+        String warmDiff = compare(frame, golden);
+        String result = "ok";
+        if (coldDiff != null) {
+            result = "first frame " + coldDiff;
+            fail(name, cold, golden);
+        } else if (warmDiff != null) {
+            result = "cached frame " + warmDiff;
+            fail(name, frame, golden);
+        }
+
+        String allowed = budget.getProperty(name);
+        String timing = micros + "us";
+        if (allowed != null) {
+            timing += " (budget " + allowed + "us)";
+            if (checkBudget && micros > Long.parseLong(allowed)) {
+                failures++;
+                result += ", over budget";
+            }
+        }
+        System.out.println("FRAME " + name + " " + timing + " " + result);
+    }
+
+    void draw(Graphics2D g2, BufferedImage frame, int drawTileSize) {
+        //same as paintComponent, the parts outside the map stay black
+        g2.setColor(Color.black);
+        g2.fillRect(0, 0, frame.getWidth(), frame.getHeight());
+        gp.drawWorld(g2, drawTileSize);
+    }
+
+    //null if the images are the same, otherwise how many pixels are different
+    String compare(BufferedImage actual, BufferedImage golden) {
+        if (actual.getWidth() != golden.getWidth() || actual.getHeight() != golden.getHeight()) {
+            return "is " + actual.getWidth() + "x" + actual.getHeight() + " but golden is " + golden.getWidth() + "x" + golden.getHeight();
+        }
+        int different = 0;
+        for (int y = 0; y < actual.getHeight(); y++) {
+            for (int x = 0; x < actual.getWidth(); x++) {
+                if ((actual.getRGB(x, y) & 0xffffff) != (golden.getRGB(x, y) & 0xffffff)) {
+                    different++;
+                }
+            }
+        }
+        return different == 0 ? null : different + " pixels different";
+    }
+
+    //saves what we drew and a diff image (different pixels red, the rest the golden image darkened)
+    void fail(String name, BufferedImage actual, BufferedImage golden) throws IOException {
+        failures++;
+        imageFailures++;
+        Files.createDirectories(failedDir);
+        ImageIO.write(actual, "png", failedDir.resolve(name + ".actual.png").toFile());
+        if (golden == null || golden.getWidth() != actual.getWidth() || golden.getHeight() != actual.getHeight()) {
+            return;
+        }
+        BufferedImage diff = new BufferedImage(actual.getWidth(), actual.getHeight(), BufferedImage.TYPE_INT_RGB);
+        for (int y = 0; y < actual.getHeight(); y++) {
+            for (int x = 0; x < actual.getWidth(); x++) {
+                int g = golden.getRGB(x, y) & 0xffffff;
+                if ((actual.getRGB(x, y) & 0xffffff) != g) {
+                    diff.setRGB(x, y, 0xff0000);
+                } else {
+                    diff.setRGB(x, y, (g >> 2) & 0x3f3f3f);
+                }
+            }
+        }
+        ImageIO.write(diff, "png", failedDir.resolve(name + ".diff.png").toFile());
+    }
+
+    BufferedImage copy(BufferedImage image) {
+        BufferedImage copy = new BufferedImage(image.getWidth(), image.getHeight(), BufferedImage.TYPE_INT_RGB);
+        Graphics2D g = copy.createGraphics();
+        g.drawImage(image, 0, 0, null);
+        g.dispose();
+        return copy;
+    }
+}
@@ -0,0 +1,257 @@
+package tools;
+
+import com.sun.management.GarbageCollectionNotificationInfo;
+import main.Gamepanel;
+import tile.WorldGenerator;
+
+import javax.management.NotificationEmitter;
+import javax.management.openmbean.CompositeData;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.lang.management.MemoryUsage;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+//load test: thousands of scripted players walking map04 through the real Player.update + CollisionChecker
+//usage: SoakTest [bots] [minutes] [reportSeconds] [--aoi] [--seed N size]
+//every report prints tick time percentiles, heap after gc (and how much it grew since the first gc) and gc pauses
+//--aoi puts every bot but the first one (the "camera") into the AreaOfInterest instead of updating all of them every tick
+//--seed walks a generated world instead of map04, big worlds are where --aoi matters
+public class SoakTest {
+    //tick times go in 10 microsecond buckets, anything over 1 second lands in the last one
+    static final int BUCKET_NANOS = 10000;
+    static final int BUCKETS = 100000;
+
+    final long[] intervalHistogram = new long[BUCKETS];
+    final long[] totalHistogram = new long[BUCKETS];
+    long intervalMax = 0;
+    long totalMax = 0;
+    long intervalOverruns = 0;
+    long totalOverruns = 0;
+
+    boolean useAoi = false;
+    long seed = 0;
+    int worldSize = 0;
+    Gamepanel gp;
+    long intervalNear = 0;
+    long intervalMid = 0;
+
+    //filled in by the gc notification listener, which runs on its own thread
+    final AtomicLong gcPauses = new AtomicLong();
+    final AtomicLong gcPauseMillis = new AtomicLong();
+    final AtomicLong gcMaxPauseMillis = new AtomicLong();
+    final AtomicLong heapAfterGc = new AtomicLong(-1);
+    final AtomicLong firstHeapAfterGc = new AtomicLong(-1);
+    //only collections that start after this (ms since the jvm started) count, set when the tick loop starts
+    //so building the world and the bots doesnt show up as growth or pauses
+    volatile long measureFromUptime = Long.MAX_VALUE;
+
+    public static void main(String[] args) throws Exception {
+        System.setProperty("java.awt.headless", "true");
+        SoakTest soak = new SoakTest();
+        List<String> numbers = new ArrayList<>();
+        for (int i = 0; i < args.length; i++) {
+            if (args[i].equals("--aoi")) {
+                soak.useAoi = true;
+            } else if (args[i].equals("--seed")) {
+                soak.seed = Long.parseLong(args[++i]);
+                soak.worldSize = Integer.parseInt(args[++i]);
+                if (soak.worldSize < WorldGenerator.MIN_SIZE) {
+                    System.out.println("SOAK world size has to be at least " + WorldGenerator.MIN_SIZE + ", got " + soak.worldSize);
+                    System.exit(1);
+                }
+            } else {
+                numbers.add(args[i]);
+            }
+        }
+        int botCount = numbers.size() > 0 ? Integer.parseInt(numbers.get(0)) : 2000;
+        double minutes = numbers.size() > 1 ? Double.parseDouble(numbers.get(1)) : 60;
+        int reportSeconds = numbers.size() > 2 ? Integer.parseInt(numbers.get(2)) : 10;
+        soak.run(botCount, (long) (minutes * 60e9), reportSeconds);
+    }
+
+    void run(int botCount, long durationNanos, int reportSeconds) throws InterruptedException {
+        listenForGc();
+
+        gp = new Gamepanel();
+        if (worldSize > 0) {
+            gp.setupGeneratedGame(seed, worldSize);
+        } else {
+            gp.setupGame();
+        }
+
+        Bot[] bots = new Bot[botCount];
+        Thread[] threads = new Thread[botCount];
+        for (int i = 0; i < botCount; i++) {
+            bots[i] = new Bot(gp, i);
+            if (useAoi && i > 0) {
+                gp.aoi.add(bots[i].player);
+            }
+        }
+        for (int i = 0; i < botCount; i++) {
+            threads[i] = Thread.ofVirtual().name("bot-" + i).start(bots[i]);
+        }
+        System.out.println("SOAK " + botCount + " bots on virtual threads, running for "
+                + String.format("%.1f", durationNanos / 60e9) + " min");
+
+        long tickInterval = 1000000000L / 60;
+        //notifications arrive late on their own thread, so filter by when the gc started instead of resetting counters
+        measureFromUptime = ManagementFactory.getRuntimeMXBean().getUptime();
+        long start = System.nanoTime();
+        long nextTick = start;
+        long nextReport = start + reportSeconds * 1000000000L;
+        long ticks = 0;
+
+        while (System.nanoTime() - start < durationNanos) {
+            long tickStart = System.nanoTime();
+            if (useAoi) {
+                bots[0].player.update();
+                gp.aoi.update(bots[0].player.worldX, bots[0].player.worldY);
+                intervalNear += gp.aoi.nearUpdates;
+                intervalMid += gp.aoi.midUpdates;
+            } else {
+                for (Bot bot : bots) {
+                    bot.player.update();
+                }
+            }
+            record(System.nanoTime() - tickStart, tickInterval);
+            ticks++;
+
+            if (System.nanoTime() >= nextReport) {
+                report("interval", intervalHistogram, intervalMax, intervalOverruns, (System.nanoTime() - start) / 1000000000L);
+                Arrays.fill(intervalHistogram, 0);
+                intervalMax = 0;
+                intervalOverruns = 0;
+                intervalNear = 0;
+                intervalMid = 0;
+                nextReport += reportSeconds * 1000000000L;
+            }
+
+            nextTick += tickInterval;
+            long sleep = nextTick - System.nanoTime();
+            if (sleep > 0) {
+                LockSupport.parkNanos(sleep);
+            } else if (sleep < -tickInterval * 5) {
+                nextTick = System.nanoTime();
+            }
+        }
+
+        long keyEvents = 0;
+        for (int i = 0; i < botCount; i++) {
+            bots[i].stop();
+            threads[i].interrupt();
+        }
+        for (int i = 0; i < botCount; i++) {
+            threads[i].join();
+            keyEvents += bots[i].keyEvents;
+        }
+
+        System.out.println("SOAK done: " + ticks + " ticks, " + keyEvents + " key events");
+        report("total", totalHistogram, totalMax, totalOverruns, (System.nanoTime() - start) / 1000000000L);
+    }
+
+    void record(long nanos, long budget) {
+        int bucket = (int) Math.min(nanos / BUCKET_NANOS, BUCKETS - 1);
+        intervalHistogram[bucket]++;
+        totalHistogram[bucket]++;
+        intervalMax = Math.max(intervalMax, nanos);
+        totalMax = Math.max(totalMax, nanos);
+        if (nanos > budget) {
+            intervalOverruns++;
+            totalOverruns++;
+        }
+    }
+
+    void report(String label, long[] histogram, long max, long overruns, long elapsedSeconds) {
+        long count = 0;
+        for (long c : histogram) {
+            count += c;
+        }
+        long heap = heapAfterGc.get();
+        MemoryUsage now = ManagementFactory.getMemoryMXBean().getHeapMemoryUsage();
+
+        System.out.println("SOAK [" + label + " @" + elapsedSeconds + "s] ticks: " + count
+                + " p50: " + ms(percentile(histogram, count, 0.50))
+                + " p90: " + ms(percentile(histogram, count, 0.90))
+                + " p99: " + ms(percentile(histogram, count, 0.99))
+                + " p99.9: " + ms(percentile(histogram, count, 0.999))
+                + " max: " + ms(max)
+                + " over budget: " + overruns);
+        if (useAoi && count > 0 && label.equals("interval")) {
+            System.out.println("SOAK [" + label + " @" + elapsedSeconds + "s] per tick, full updates: " + intervalNear / count
+                    + " coarse updates: " + intervalMid / count + " of " + gp.aoi.size() + " bots");
+        }
+        System.out.println("SOAK [" + label + " @" + elapsedSeconds + "s] heap used: " + now.getUsed() / (1024 * 1024) + "MB"
+                + " after gc: " + (heap < 0 ? "n/a" : heap / (1024 * 1024) + "MB")
+                + " growth: " + (heap < 0 ? "n/a" : (heap - firstHeapAfterGc.get()) / 1024 + "KB")
+                + " gc pauses: " + gcPauses.get()
+                + " total: " + gcPauseMillis.get() + "ms"
+                + " max: " + gcMaxPauseMillis.get() + "ms");
+    }
+
+    static long percentile(long[] histogram, long count, double p) {
+        long target = (long) Math.ceil(count * p);
+        long seen = 0;
+        for (int i = 0; i < histogram.length; i++) {
+            seen += histogram[i];
+            if (seen >= target && seen > 0) {
+                return (long) (i + 1) * BUCKET_NANOS;
+            }
+        }
+        return 0;
+    }
+
+    static String ms(long nanos) {
+        return String.format("%.2fms", nanos / 1e6);
+    }
+
+    //gc notifications tell us how long each collection took and how big the heap was after it
+    void listenForGc() {
+        //the gc info has every memory pool in it, metaspace and the code cache too
+        //only the heap pools count, otherwise jit and class loading show up as growth
+        Set<String> heapPools = new HashSet<>();
+        for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+            if (pool.getType() == MemoryType.HEAP) {
+                heapPools.add(pool.getName());
+            }
+        }
+        for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans()) {
+            //concurrent collectors also report their background cycles, those arent pauses
+            if (gc.getName().contains("Cycles") || gc.getName().contains("Concurrent")) {
+                continue;
+            }
+            ((NotificationEmitter) gc).addNotificationListener((notification, handback) -> {
+                if (!notification.getType().equals(GarbageCollectionNotificationInfo.GARBAGE_COLLECTION_NOTIFICATION)) {
+                    return;
+                }
+                GarbageCollectionNotificationInfo info =
+                        GarbageCollectionNotificationInfo.from((CompositeData) notification.getUserData());
+                if (info.getGcInfo().getStartTime() < measureFromUptime) {
+                    //setup, not the soak
+                    return;
+                }
+                long duration = info.getGcInfo().getDuration();
+                gcPauses.incrementAndGet();
+                gcPauseMillis.addAndGet(duration);
+                gcMaxPauseMillis.accumulateAndGet(duration, Math::max);
+
+                long used = 0;
+                for (Map.Entry<String, MemoryUsage> pool : info.getGcInfo().getMemoryUsageAfterGc().entrySet()) {
+                    if (heapPools.contains(pool.getKey())) {
+                        used += pool.getValue().getUsed();
+                    }
+                }
+                heapAfterGc.set(used);
+                firstHeapAfterGc.compareAndSet(-1, used);
+            }, null, null);
+        }
+    }
+}